@@ -0,0 +1,62 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps an exponentially weighted moving average of the observed boot times per endpoint, image
+ * and flavor, so that waits for VMs of the same kind can expect when they will be ACTIVE.
+ */
+public class BootTimeEstimator {
+
+  private static final double WEIGHT = 0.3;
+
+  private final ConcurrentMap<String, Double> averages = new ConcurrentHashMap<>();
+
+  public void record(String authUrl, String imageId, String flavorId, long bootMillis) {
+    String key = key(authUrl, imageId, flavorId);
+    while (true) {
+      Double average = averages.get(key);
+      if (average == null) {
+        if (averages.putIfAbsent(key, (double) bootMillis) == null) {
+          return;
+        }
+      } else if (averages.replace(key, average, WEIGHT * bootMillis + (1 - WEIGHT) * average)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the expected boot time in milliseconds, or -1 if no VM with this image and flavor was
+   * seen booting yet.
+   */
+  public long getExpectedMillis(String authUrl, String imageId, String flavorId) {
+    Double average = averages.get(key(authUrl, imageId, flavorId));
+    return average == null ? -1 : average.longValue();
+  }
+
+  private String key(String authUrl, String imageId, String flavorId) {
+    return authUrl + " " + imageId + " " + flavorId;
+  }
+}
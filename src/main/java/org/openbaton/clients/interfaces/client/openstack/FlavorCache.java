@@ -0,0 +1,141 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import org.openbaton.catalogue.mano.common.DeploymentFlavour;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the flavor catalog of every VimInstance. The first request loads it. Once it is older than
+ * the TTL it is still returned, while a single background refresh replaces it, so resolving a
+ * flavor never waits for Nova after the first time. Changes to the flavors must invalidate the
+ * catalog of their VimInstance.
+ *
+ * <p>Every invalidation starts a new generation of the catalog of the VimInstance. A catalog
+ * whose listing started in an earlier generation is returned to the caller which loaded it, but
+ * never cached, since it might miss the change that caused the invalidation.
+ */
+public class FlavorCache {
+
+  private static Logger log = LoggerFactory.getLogger(FlavorCache.class);
+
+  /**
+   * Lists the flavors of a VimInstance.
+   */
+  public interface FlavorSource {
+    Collection<DeploymentFlavour> listFlavors(VimInstance vimInstance) throws Exception;
+  }
+
+  private final FlavorSource source;
+  private final Executor executor;
+  private final long ttlMillis;
+  private final ConcurrentMap<VimInstanceKey, FlavorCatalog> catalogs = new ConcurrentHashMap<>();
+  private final Set<VimInstanceKey> refreshing =
+      Collections.newSetFromMap(new ConcurrentHashMap<VimInstanceKey, Boolean>());
+  private final ConcurrentMap<VimInstanceKey, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  public FlavorCache(FlavorSource source, Executor executor, long ttlMillis) {
+    this.source = source;
+    this.executor = executor;
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Returns the flavor catalog of the VimInstance, loading it if it is not cached.
+   */
+  public FlavorCatalog get(final VimInstance vimInstance) throws Exception {
+    final VimInstanceKey key = VimInstanceKey.of(vimInstance);
+    final FlavorCatalog catalog = catalogs.get(key);
+    final AtomicLong generation = generation(key);
+    final long listedIn = generation.get();
+    if (catalog == null) {
+      FlavorCatalog loaded = new FlavorCatalog(source.listFlavors(vimInstance));
+      if (catalogs.putIfAbsent(key, loaded) == null) {
+        discardIfInvalidated(key, loaded, generation, listedIn);
+      }
+      return loaded;
+    }
+    if (catalog.getAgeMillis() >= ttlMillis && refreshing.add(key)) {
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              try {
+                // an invalidated catalog stays invalidated
+                FlavorCatalog refreshed = new FlavorCatalog(source.listFlavors(vimInstance));
+                if (catalogs.replace(key, catalog, refreshed)) {
+                  discardIfInvalidated(key, refreshed, generation, listedIn);
+                }
+              } catch (Exception e) {
+                log.warn(
+                    "Not able to refresh the flavors of VimInstance with name: "
+                        + vimInstance.getName()
+                        + ": "
+                        + e.getMessage());
+                catalogs.remove(key, catalog);
+              } finally {
+                refreshing.remove(key);
+              }
+            }
+          });
+    }
+    return catalog;
+  }
+
+  public void invalidate(VimInstance vimInstance) {
+    VimInstanceKey key = VimInstanceKey.of(vimInstance);
+    generation(key).incrementAndGet();
+    catalogs.remove(key);
+  }
+
+  private AtomicLong generation(VimInstanceKey key) {
+    AtomicLong generation = generations.get(key);
+    if (generation == null) {
+      AtomicLong created = new AtomicLong();
+      generation = generations.putIfAbsent(key, created);
+      if (generation == null) {
+        generation = created;
+      }
+    }
+    return generation;
+  }
+
+  /**
+   * Removes a catalog just cached again if it was invalidated while it was listed or stored.
+   */
+  private void discardIfInvalidated(
+      VimInstanceKey key, FlavorCatalog catalog, AtomicLong generation, long listedIn) {
+    if (generation.get() != listedIn) {
+      catalogs.remove(key, catalog);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import org.openbaton.catalogue.mano.common.DeploymentFlavour;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of the flavors of a VimInstance, indexed by ExtId and by name. Every flavor returned
+ * is a copy, so callers can attach it to their own objects.
+ */
+public class FlavorCatalog {
+
+  private final Map<String, DeploymentFlavour> byId;
+  private final Map<String, DeploymentFlavour> byName;
+  private final long loadedAt = System.currentTimeMillis();
+
+  public FlavorCatalog(Collection<DeploymentFlavour> flavors) {
+    Map<String, DeploymentFlavour> byId = new LinkedHashMap<>();
+    Map<String, DeploymentFlavour> byName = new HashMap<>();
+    for (DeploymentFlavour flavor : flavors) {
+      byId.put(flavor.getExtId(), flavor);
+      if (flavor.getFlavour_key() != null && !byName.containsKey(flavor.getFlavour_key())) {
+        byName.put(flavor.getFlavour_key(), flavor);
+      }
+    }
+    this.byId = Collections.unmodifiableMap(byId);
+    this.byName = Collections.unmodifiableMap(byName);
+  }
+
+  /**
+   * Returns the flavor with the given ExtId, or null if there is none.
+   */
+  public DeploymentFlavour getById(String extId) {
+    return copy(byId.get(extId));
+  }
+
+  /**
+   * Returns the flavor with the given name, or null if there is none.
+   */
+  public DeploymentFlavour getByName(String flavourKey) {
+    return copy(byName.get(flavourKey));
+  }
+
+  public List<DeploymentFlavour> getFlavors() {
+    List<DeploymentFlavour> flavors = new ArrayList<>();
+    for (DeploymentFlavour flavor : byId.values()) {
+      flavors.add(copy(flavor));
+    }
+    return flavors;
+  }
+
+  public int size() {
+    return byId.size();
+  }
+
+  public long getAgeMillis() {
+    return System.currentTimeMillis() - loadedAt;
+  }
+
+  private DeploymentFlavour copy(DeploymentFlavour flavor) {
+    if (flavor == null) {
+      return null;
+    }
+    DeploymentFlavour copy = new DeploymentFlavour();
+    copy.setExtId(flavor.getExtId());
+    copy.setFlavour_key(flavor.getFlavour_key());
+    copy.setVcpus(flavor.getVcpus());
+    copy.setRam(flavor.getRam());
+    copy.setDisk(flavor.getDisk());
+    return copy;
+  }
+
+  @Override
+  public String toString() {
+    return "FlavorCatalog{" + byId.values() + "}";
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of the FloatingIPs of a tenant, indexed by their address. It answers whether an address
+ * is a FloatingIP, and to which port and fixed IP it is associated, without listing all FloatingIPs
+ * again.
+ */
+public class FloatingIpIndex {
+
+  private final Map<String, Entry> entries;
+
+  public FloatingIpIndex(Collection<Entry> entries) {
+    Map<String, Entry> byAddress = new LinkedHashMap<>();
+    for (Entry entry : entries) {
+      byAddress.put(entry.getAddress(), entry);
+    }
+    this.entries = Collections.unmodifiableMap(byAddress);
+  }
+
+  public boolean contains(String address) {
+    return entries.containsKey(address);
+  }
+
+  /**
+   * Returns the FloatingIP with the given address, or null if the address is not a FloatingIP of
+   * the tenant.
+   */
+  public Entry get(String address) {
+    return entries.get(address);
+  }
+
+  public List<String> getAddresses() {
+    return new ArrayList<>(entries.keySet());
+  }
+
+  /**
+   * Returns the addresses of the FloatingIPs which are not associated to any port.
+   */
+  public List<String> getFreeAddresses() {
+    List<String> free = new ArrayList<>();
+    for (Entry entry : entries.values()) {
+      if (entry.isFree()) {
+        free.add(entry.getAddress());
+      }
+    }
+    return free;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  @Override
+  public String toString() {
+    return "FloatingIpIndex{" + entries.values() + "}";
+  }
+
+  public static class Entry {
+
+    private final String id;
+    private final String address;
+    private final String portId;
+    private final String fixedIpAddress;
+
+    public Entry(String id, String address, String portId, String fixedIpAddress) {
+      this.id = id;
+      this.address = address;
+      this.portId = portId;
+      this.fixedIpAddress = fixedIpAddress;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getAddress() {
+      return address;
+    }
+
+    public String getPortId() {
+      return portId;
+    }
+
+    public String getFixedIpAddress() {
+      return fixedIpAddress;
+    }
+
+    public boolean isFree() {
+      return fixedIpAddress == null;
+    }
+
+    @Override
+    public String toString() {
+      return "Entry{"
+          + "id="
+          + id
+          + ", address="
+          + address
+          + ", portId="
+          + portId
+          + ", fixedIpAddress="
+          + fixedIpAddress
+          + "}";
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Records which free FloatingIPs of a tenant were handed out to a launch and are being associated,
+ * so that concurrent launches never pick the same one. A claim ends when the association failed
+ * and the FloatingIP is released, when a listing shows the FloatingIP associated, or when it is
+ * older than the claim timeout and the FloatingIP is still free.
+ */
+public class FloatingIpLedger {
+
+  private static Logger log = LoggerFactory.getLogger(FloatingIpLedger.class);
+
+  private final ConcurrentMap<String, Long> claims = new ConcurrentHashMap<>();
+  private final long claimTimeoutMillis;
+
+  public FloatingIpLedger(long claimTimeoutMillis) {
+    this.claimTimeoutMillis = claimTimeoutMillis;
+  }
+
+  /**
+   * Claims the FloatingIP, returns false if it is claimed already.
+   */
+  public boolean claim(String address) {
+    return claims.putIfAbsent(address, System.currentTimeMillis()) == null;
+  }
+
+  /**
+   * Releases the claim on the FloatingIP, returns false if it was not claimed.
+   */
+  public boolean release(String address) {
+    return address != null && claims.remove(address) != null;
+  }
+
+  public boolean isClaimed(String address) {
+    return claims.containsKey(address);
+  }
+
+  public int size() {
+    return claims.size();
+  }
+
+  /**
+   * Ends the claims settled by a listing of the free FloatingIPs taken at the given time. Claimed
+   * FloatingIPs which are not free anymore were associated, and those still free after the claim
+   * timeout were apparently never associated. Claims made after the listing was taken are left
+   * alone, as the listing says nothing about them.
+   */
+  public void reconcile(Set<String> free, long listedAt) {
+    for (Map.Entry<String, Long> claim : claims.entrySet()) {
+      if (listedAt < claim.getValue()) {
+        continue;
+      }
+      if (!free.contains(claim.getKey())) {
+        claims.remove(claim.getKey(), claim.getValue());
+      } else if (claimTimeoutMillis > 0 && listedAt - claim.getValue() >= claimTimeoutMillis) {
+        log.warn(
+            "FloatingIP: "
+                + claim.getKey()
+                + " was claimed "
+                + (listedAt - claim.getValue()) / 1000
+                + " seconds before it was listed still not associated, releasing it");
+        claims.remove(claim.getKey(), claim.getValue());
+      }
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import com.google.common.util.concurrent.Striped;
+
+import org.openbaton.catalogue.nfvo.VimInstance;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Serializes the FloatingIP assignments per endpoint and tenant, since they pick free addresses
+ * from the same pool. Different clouds and tenants assign in parallel, except for the rare case
+ * where two of them hash to the same stripe.
+ */
+public class FloatingIpLocks {
+
+  private final Striped<Lock> locks;
+
+  public FloatingIpLocks(int stripes) {
+    this.locks = Striped.lazyWeakLock(stripes);
+  }
+
+  /**
+   * Returns the reentrant lock of the endpoint and tenant of the VimInstance.
+   */
+  public Lock get(VimInstance vimInstance) {
+    return locks.get(vimInstance.getAuthUrl() + " " + vimInstance.getTenant());
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps FloatingIPs of a tenant which are allocated but not associated ready for launches. Claiming
+ * one takes it from a lock-free queue, and whenever fewer than the low-water mark are left the
+ * reservoir lists the free FloatingIPs again and allocates the missing ones in the background.
+ *
+ * <p>Claims are recorded in a {@link FloatingIpLedger}, so a claimed address is not handed out
+ * again while a listing still shows it free because its association is in progress. Every listing
+ * of the free FloatingIPs is reconciled with the ledger, whether the reservoir or somebody else
+ * made it.
+ */
+public class FloatingIpReservoir {
+
+  private static Logger log = LoggerFactory.getLogger(FloatingIpReservoir.class);
+
+  /**
+   * Lists and allocates the FloatingIPs of a tenant.
+   */
+  public interface Source {
+
+    /** Returns the addresses of the FloatingIPs of the tenant which are not associated. */
+    Collection<String> listFree() throws Exception;
+
+    /** Allocates FloatingIPs from the pool of the tenant. */
+    void allocate(int count) throws Exception;
+  }
+
+  private final Source source;
+  private final Executor executor;
+  private final int lowWaterMark;
+  private final Queue<String> available = new ConcurrentLinkedQueue<>();
+  private final Set<String> queued =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final FloatingIpLedger ledger;
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicBoolean refillScheduled = new AtomicBoolean();
+  private final Object refillLock = new Object();
+  private long lastListedAt;
+
+  public FloatingIpReservoir(
+      Source source, Executor executor, int lowWaterMark, long claimTimeoutMillis) {
+    this.source = source;
+    this.executor = executor;
+    this.lowWaterMark = Math.max(0, lowWaterMark);
+    this.ledger = new FloatingIpLedger(claimTimeoutMillis);
+  }
+
+  /**
+   * Returns a free FloatingIP, or null if the reservoir is empty. Never blocks, but schedules a
+   * refill if the reservoir runs low.
+   */
+  public String claim() {
+    String address;
+    while ((address = available.poll()) != null) {
+      // skips addresses a concurrent refill found associated meanwhile
+      if (queued.remove(address)) {
+        size.decrementAndGet();
+        if (ledger.claim(address)) {
+          break;
+        }
+      }
+    }
+    if (size.get() < lowWaterMark) {
+      refillAsync();
+    }
+    return address;
+  }
+
+  /**
+   * Returns a free FloatingIP like {@link #claim()}, but if the reservoir is empty it is refilled
+   * right away. Returns null only if no FloatingIP can be allocated.
+   */
+  public String claimOrAllocate() {
+    String address = claim();
+    if (address == null) {
+      refill(1);
+      address = claim();
+    }
+    return address;
+  }
+
+  /**
+   * Claims a FloatingIP chosen by the caller, so that it is not handed out to somebody else. Returns
+   * false if it is claimed already.
+   */
+  public boolean reserve(String address) {
+    if (!ledger.claim(address)) {
+      return false;
+    }
+    if (queued.remove(address)) {
+      available.remove(address);
+      size.decrementAndGet();
+    }
+    return true;
+  }
+
+  /**
+   * Puts back a claimed FloatingIP whose association failed.
+   */
+  public void release(String address) {
+    if (ledger.release(address)) {
+      offer(address);
+    }
+  }
+
+  /**
+   * Returns the number of FloatingIPs claimed and not yet seen associated.
+   */
+  public int getClaimedCount() {
+    return ledger.size();
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * Schedules a refill unless one is scheduled already.
+   */
+  public void refillAsync() {
+    if (refillScheduled.compareAndSet(false, true)) {
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              try {
+                refill(0);
+              } finally {
+                refillScheduled.set(false);
+              }
+            }
+          });
+    }
+  }
+
+  /**
+   * Lists the free FloatingIPs and allocates as many as needed to have the low-water mark, and at
+   * least the given number, available.
+   */
+  private void refill(int minimum) {
+    synchronized (refillLock) {
+      try {
+        long listedAt = System.currentTimeMillis();
+        reconcile(source.listFree(), listedAt);
+        int missing = Math.max(lowWaterMark, minimum) - size.get();
+        if (missing > 0) {
+          log.debug("Allocating " + missing + " FloatingIPs for the reservoir");
+          source.allocate(missing);
+          listedAt = System.currentTimeMillis();
+          reconcile(source.listFree(), listedAt);
+        }
+      } catch (Exception e) {
+        log.warn("Not able to refill the FloatingIP reservoir: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Makes the reservoir hold exactly the free FloatingIPs of a listing taken at the given time
+   * which are not claimed. Listings older than the last one reconciled are ignored.
+   */
+  public synchronized void reconcile(Collection<String> free, long listedAt) {
+    if (listedAt < lastListedAt) {
+      log.debug("Ignoring a listing of free FloatingIPs older than the last one reconciled");
+      return;
+    }
+    lastListedAt = listedAt;
+    Set<String> listed = new HashSet<>(free);
+    ledger.reconcile(listed, listedAt);
+    for (String address : queued) {
+      if (!listed.contains(address) && queued.remove(address)) {
+        available.remove(address);
+        size.decrementAndGet();
+      }
+    }
+    for (String address : listed) {
+      if (!ledger.isClaimed(address)) {
+        offer(address);
+      }
+    }
+  }
+
+  private void offer(String address) {
+    if (queued.add(address)) {
+      available.add(address);
+      size.incrementAndGet();
+    }
+  }
+}
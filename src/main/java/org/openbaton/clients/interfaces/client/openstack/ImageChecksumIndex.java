@@ -0,0 +1,109 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import org.jclouds.openstack.glance.v1_0.domain.Image;
+import org.jclouds.openstack.glance.v1_0.domain.ImageDetails;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the active images of a tenant by their content. An image is found by the MD5 checksum
+ * Glance computed for it together with its disk and container format, its owner and its
+ * visibility, so that uploading the same content again can be avoided without reusing images of
+ * other tenants. Images added or deleted through the plugin are kept up to date without listing all
+ * images again.
+ */
+public class ImageChecksumIndex {
+
+  private final ConcurrentMap<String, ImageDetails> images = new ConcurrentHashMap<>();
+
+  public ImageChecksumIndex(Iterable<ImageDetails> images) {
+    for (ImageDetails image : images) {
+      add(image);
+    }
+  }
+
+  /**
+   * Returns an active image with the given checksum and formats which is owned by the given tenant
+   * and has the given visibility, or null if there is none.
+   */
+  public ImageDetails find(
+      String checksum, String diskFormat, String containerFormat, String owner, boolean isPublic) {
+    if (checksum == null || owner == null) {
+      return null;
+    }
+    return images.get(key(checksum, diskFormat, containerFormat, owner, isPublic));
+  }
+
+  /**
+   * Adds the image if it is active and its checksum is known.
+   */
+  public void add(ImageDetails image) {
+    if (image.getStatus() == Image.Status.ACTIVE
+        && image.getChecksum().isPresent()
+        && image.getDiskFormat().isPresent()
+        && image.getContainerFormat().isPresent()
+        && image.getOwner().isPresent()) {
+      images.putIfAbsent(
+          key(
+              image.getChecksum().get(),
+              image.getDiskFormat().get().toString(),
+              image.getContainerFormat().get().toString(),
+              image.getOwner().get(),
+              image.isPublic()),
+          image);
+    }
+  }
+
+  public void remove(String imageId) {
+    for (Iterator<ImageDetails> iterator = images.values().iterator(); iterator.hasNext(); ) {
+      if (iterator.next().getId().equals(imageId)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  public int size() {
+    return images.size();
+  }
+
+  private String key(
+      String checksum, String diskFormat, String containerFormat, String owner, boolean isPublic) {
+    return checksum.toLowerCase()
+        + " "
+        + String.valueOf(diskFormat).toUpperCase()
+        + " "
+        + String.valueOf(containerFormat).toUpperCase()
+        + " "
+        + owner
+        + " "
+        + (isPublic ? "public" : "private");
+  }
+
+  @Override
+  public String toString() {
+    return "ImageChecksumIndex{" + images.keySet() + "}";
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.jclouds.openstack.glance.v1_0.domain.Image;
+import org.jclouds.openstack.glance.v1_0.domain.ImageDetails;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.exceptions.VimDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks images which Glance imports by itself, e.g. from a URL, until they are active. Per
+ * VimInstance there is a single poll loop, which lists the images changed since the oldest pending
+ * import once per tick and completes all imports which reached a final status. The loop only runs
+ * while imports are pending, and checks each import more rarely the longer it takes.
+ *
+ * <p>Finished imports are kept for a while, so that tracking them again returns the final image
+ * without another listing.
+ */
+public class ImageImportTracker extends VimPoller<ImageDetails, ImageImportTracker.Import> {
+
+  private static Logger log = LoggerFactory.getLogger(ImageImportTracker.class);
+
+  /** Difference between the local clock and the one of Glance which the listing tolerates. */
+  private static final long CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+  /**
+   * Lists the images of a VimInstance in detail which changed since the given time.
+   */
+  public interface ImageSource {
+    Iterable<ImageDetails> listImages(VimInstance vimInstance, Date changedSince) throws Exception;
+  }
+
+  private final ImageSource source;
+  private final Cache<String, ListenableFuture<ImageDetails>> finished;
+
+  public ImageImportTracker(
+      ImageSource source,
+      ScheduledExecutorService scheduler,
+      Executor executor,
+      WaitPolicy policy,
+      long finishedTtlMillis) {
+    super("images", scheduler, executor, policy);
+    this.source = source;
+    this.finished =
+        CacheBuilder.newBuilder()
+            .expireAfterWrite(finishedTtlMillis, TimeUnit.MILLISECONDS)
+            .maximumSize(1024)
+            .build();
+  }
+
+  /**
+   * Returns a future which completes with the image once it is active, and fails if the import
+   * was killed or the image deleted. Tracking an image which is tracked already returns the same
+   * future. Cancelling the future stops tracking the image.
+   *
+   * @param timeoutMillis time after which the future fails with a VimDriverException, or 0 to wait
+   *     without limit
+   */
+  public ListenableFuture<ImageDetails> track(
+      VimInstance vimInstance, String imageId, long timeoutMillis) {
+    ListenableFuture<ImageDetails> done = finished.getIfPresent(key(vimInstance, imageId));
+    if (done != null) {
+      return done;
+    }
+    return poll(vimInstance, new Import(imageId, timeoutMillis));
+  }
+
+  private String key(VimInstance vimInstance, String imageId) {
+    return vimInstance.getAuthUrl() + " " + imageId;
+  }
+
+  @Override
+  protected Iterable<ImageDetails> list(VimInstance vimInstance, Collection<Import> imports)
+      throws Exception {
+    long oldest = System.currentTimeMillis();
+    for (Import pending : imports) {
+      oldest = Math.min(oldest, pending.started);
+    }
+    return source.listImages(vimInstance, new Date(oldest - CLOCK_SKEW_MILLIS));
+  }
+
+  @Override
+  protected String getId(ImageDetails image) {
+    return image.getId();
+  }
+
+  @Override
+  protected Import findEquivalent(Collection<Import> pending, Import started) {
+    for (Import existing : pending) {
+      if (existing.id.equals(started.id)) {
+        return existing;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  protected boolean update(VimInstance vimInstance, Import pending, ImageDetails image) {
+    if (image == null) {
+      return false;
+    }
+    Image.Status status = image.getStatus();
+    if (status != Image.Status.ACTIVE
+        && status != Image.Status.KILLED
+        && status != Image.Status.DELETED
+        && status != Image.Status.PENDING_DELETE) {
+      return false;
+    }
+    // remembered before the future completes, so that tracking it again right away finds it
+    finished.put(key(vimInstance, pending.id), pending.future);
+    if (status == Image.Status.ACTIVE) {
+      log.debug("Image with ExtId: " + pending.id + " is active");
+      pending.future.set(image);
+    } else {
+      pending.future.setException(
+          new VimDriverException(
+              "Import of Image with ExtId: "
+                  + pending.id
+                  + " on VimInstance with name: "
+                  + vimInstance.getName()
+                  + " ended in status "
+                  + status));
+    }
+    return true;
+  }
+
+  @Override
+  protected String describe(Import pending) {
+    return "the import of Image with ExtId: " + pending.id;
+  }
+
+  static class Import extends VimPoller.Wait<ImageDetails> {
+
+    private Import(String imageId, long timeoutMillis) {
+      super(imageId, timeoutMillis, -1);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import com.google.common.collect.AbstractIterator;
+
+import org.jclouds.openstack.glance.v1_0.domain.ImageDetails;
+import org.jclouds.openstack.glance.v1_0.features.ImageApi;
+import org.jclouds.openstack.glance.v1_0.options.ListImageOptions;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lists the images of a Glance ImageApi in detail, one page per request. The pages are requested
+ * while iterating, so only one page is held at a time and a caller which stops early does not
+ * request the remaining ones.
+ *
+ * <p>Glance v1 returns no next links, so every page is requested after the ID of the last image of
+ * the previous one, until a page is empty. A shorter page than requested does not end the listing,
+ * since Glance caps the page size at its api_limit_max.
+ */
+public class ImagePager implements Iterable<ImageDetails> {
+
+  private final ImageApi imageApi;
+  private final int pageSize;
+  private final Date changedSince;
+
+  /**
+   * @param changedSince only lists images changed since then, or null to list all images
+   */
+  public ImagePager(ImageApi imageApi, int pageSize, Date changedSince) {
+    this.imageApi = imageApi;
+    this.pageSize = pageSize;
+    this.changedSince = changedSince;
+  }
+
+  @Override
+  public Iterator<ImageDetails> iterator() {
+    return new AbstractIterator<ImageDetails>() {
+      private Iterator<ImageDetails> page = Collections.emptyIterator();
+      private final Set<String> markers = new HashSet<>();
+      private String marker;
+      private boolean lastPage;
+
+      @Override
+      protected ImageDetails computeNext() {
+        while (!page.hasNext()) {
+          if (lastPage) {
+            return endOfData();
+          }
+          List<ImageDetails> images = listPage(marker);
+          page = images.iterator();
+          if (images.isEmpty()) {
+            lastPage = true;
+          } else {
+            marker = images.get(images.size() - 1).getId();
+            // a server ignoring the marker would return the same page again and again
+            lastPage = !markers.add(marker);
+          }
+        }
+        return page.next();
+      }
+    };
+  }
+
+  private List<ImageDetails> listPage(String marker) {
+    ListImageOptions options = new ListImageOptions().limit(pageSize);
+    if (changedSince != null) {
+      options.changesSince(changedSince);
+    }
+    if (marker != null) {
+      options.marker(marker);
+    }
+    return imageApi.listInDetail(options).toList();
+  }
+}
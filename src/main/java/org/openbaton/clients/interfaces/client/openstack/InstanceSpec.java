@@ -0,0 +1,152 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import org.openbaton.catalogue.mano.descriptor.VNFDConnectionPoint;
+import org.openbaton.catalogue.security.Key;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Describes one VM of a bulk launch, with the same parameters as launchInstanceAndWait.
+ */
+public class InstanceSpec {
+
+  private String name;
+  private String imageId;
+  private String flavorId;
+  private String keypair;
+  private Set<VNFDConnectionPoint> networks;
+  private Set<String> secGroup;
+  private String userData;
+  private Map<String, String> floatingIp;
+  private Set<Key> keys;
+
+  public InstanceSpec() {}
+
+  public InstanceSpec(
+      String name,
+      String imageId,
+      String flavorId,
+      String keypair,
+      Set<VNFDConnectionPoint> networks,
+      Set<String> secGroup,
+      String userData) {
+    this.name = name;
+    this.imageId = imageId;
+    this.flavorId = flavorId;
+    this.keypair = keypair;
+    this.networks = networks;
+    this.secGroup = secGroup;
+    this.userData = userData;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getImageId() {
+    return imageId;
+  }
+
+  public void setImageId(String imageId) {
+    this.imageId = imageId;
+  }
+
+  public String getFlavorId() {
+    return flavorId;
+  }
+
+  public void setFlavorId(String flavorId) {
+    this.flavorId = flavorId;
+  }
+
+  public String getKeypair() {
+    return keypair;
+  }
+
+  public void setKeypair(String keypair) {
+    this.keypair = keypair;
+  }
+
+  public Set<VNFDConnectionPoint> getNetworks() {
+    return networks;
+  }
+
+  public void setNetworks(Set<VNFDConnectionPoint> networks) {
+    this.networks = networks;
+  }
+
+  public Set<String> getSecGroup() {
+    return secGroup;
+  }
+
+  public void setSecGroup(Set<String> secGroup) {
+    this.secGroup = secGroup;
+  }
+
+  public String getUserData() {
+    return userData;
+  }
+
+  public void setUserData(String userData) {
+    this.userData = userData;
+  }
+
+  public Map<String, String> getFloatingIp() {
+    return floatingIp;
+  }
+
+  public void setFloatingIp(Map<String, String> floatingIp) {
+    this.floatingIp = floatingIp;
+  }
+
+  public Set<Key> getKeys() {
+    return keys;
+  }
+
+  public void setKeys(Set<Key> keys) {
+    this.keys = keys;
+  }
+
+  @Override
+  public String toString() {
+    return "InstanceSpec{"
+        + "name="
+        + name
+        + ", imageId="
+        + imageId
+        + ", flavorId="
+        + flavorId
+        + ", keypair="
+        + keypair
+        + ", secGroup="
+        + secGroup
+        + ", floatingIp="
+        + floatingIp
+        + "}";
+  }
+}
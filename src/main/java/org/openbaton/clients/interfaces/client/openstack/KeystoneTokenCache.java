@@ -0,0 +1,281 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.domain.Credentials;
+import org.jclouds.openstack.keystone.v2_0.domain.Access;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caches the Keystone {@link Access} of every VimInstance, so that the REST calls which are not
+ * covered by jclouds do not authenticate again each time they need a token or an endpoint.
+ *
+ * <p>An Access is reused until it is about to expire. Shortly before that it is refreshed in the
+ * background, and if several threads need a new one at the same time only one of them
+ * authenticates while the others wait for its result.
+ */
+public class KeystoneTokenCache {
+
+  private static Logger log = LoggerFactory.getLogger(KeystoneTokenCache.class);
+
+  /** Lifetime assumed for tokens without expiry date, Keystone's default token lifetime. */
+  private static final long DEFAULT_TOKEN_LIFETIME = TimeUnit.HOURS.toMillis(1);
+
+  /**
+   * Shortest delay between two background refreshes, so that tokens which live shorter than the
+   * refresh-ahead time do not make the refresh authenticate again and again.
+   */
+  private static final long MIN_REFRESH_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+  private final ScheduledExecutorService scheduler;
+  private final long refreshAheadMillis;
+  private final long expiryMarginMillis;
+  private final Cache<VimInstanceKey, TokenEntry> entries;
+
+  public KeystoneTokenCache(
+      ScheduledExecutorService scheduler,
+      long refreshAheadSeconds,
+      long expiryMarginSeconds,
+      long idleTimeoutSeconds) {
+    this.scheduler = scheduler;
+    this.refreshAheadMillis = TimeUnit.SECONDS.toMillis(refreshAheadSeconds);
+    this.expiryMarginMillis = TimeUnit.SECONDS.toMillis(expiryMarginSeconds);
+    this.entries =
+        CacheBuilder.newBuilder()
+            .expireAfterAccess(idleTimeoutSeconds, TimeUnit.SECONDS)
+            .removalListener(
+                new RemovalListener<VimInstanceKey, TokenEntry>() {
+                  @Override
+                  public void onRemoval(
+                      RemovalNotification<VimInstanceKey, TokenEntry> notification) {
+                    notification.getValue().close();
+                  }
+                })
+            .build();
+  }
+
+  /**
+   * Returns a valid Access for the VimInstance, authenticating only if there is no cached one or
+   * the cached one is about to expire.
+   */
+  public Access getAccess(VimInstance vimInstance) {
+    return getEntry(vimInstance).get();
+  }
+
+  /**
+   * Returns the cached Access of the VimInstance without ever authenticating, or null if there is
+   * no valid one.
+   */
+  public Access getCachedAccess(VimInstance vimInstance) {
+    TokenEntry entry = entries.getIfPresent(VimInstanceKey.of(vimInstance));
+    return entry == null ? null : entry.getIfValid();
+  }
+
+  /**
+   * Returns the ID of the tenant the token of the VimInstance is scoped to. It is taken from the
+   * cached Access, so this only authenticates if the VimInstance has no valid Access yet.
+   */
+  public String getTenantId(VimInstance vimInstance) {
+    return getEntry(vimInstance).getTenantId();
+  }
+
+  /**
+   * Forgets the Access of the VimInstance, e.g. after its token was revoked.
+   */
+  public void invalidate(VimInstance vimInstance) {
+    entries.invalidate(VimInstanceKey.of(vimInstance));
+  }
+
+  public void invalidateAll() {
+    entries.invalidateAll();
+  }
+
+  private TokenEntry getEntry(final VimInstance vimInstance) {
+    try {
+      return entries.get(
+          VimInstanceKey.of(vimInstance),
+          new Callable<TokenEntry>() {
+            @Override
+            public TokenEntry call() {
+              return new TokenEntry(vimInstance);
+            }
+          });
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private class TokenEntry {
+
+    private final String vimName;
+    private final Credentials credentials;
+    private final ComputeServiceContext context;
+    private final Function<Credentials, Access> auth;
+    private final Lock authLock = new ReentrantLock();
+    private volatile Access access;
+    private volatile long expiresAt;
+    private volatile String tenantId;
+    private ScheduledFuture<?> refresh;
+    private volatile boolean closed;
+
+    private TokenEntry(VimInstance vimInstance) {
+      this.vimName = vimInstance.getName();
+      this.credentials =
+          new Credentials.Builder<Credentials>()
+              .identity(vimInstance.getTenant() + ":" + vimInstance.getUsername())
+              .credential(vimInstance.getPassword())
+              .build();
+      ContextBuilder contextBuilder =
+          ContextBuilder.newBuilder("openstack-nova")
+              .credentials(vimInstance.getUsername(), vimInstance.getPassword())
+              .endpoint(vimInstance.getAuthUrl());
+      this.context = contextBuilder.buildView(ComputeServiceContext.class);
+      this.auth =
+          context
+              .utils()
+              .injector()
+              .getInstance(Key.get(new TypeLiteral<Function<Credentials, Access>>() {}));
+    }
+
+    private Access getIfValid() {
+      Access current = access;
+      if (current != null && System.currentTimeMillis() + expiryMarginMillis < expiresAt) {
+        return current;
+      }
+      return null;
+    }
+
+    private Access get() {
+      Access current = getIfValid();
+      if (current != null) {
+        return current;
+      }
+      authLock.lock();
+      try {
+        // another thread may have authenticated while this one was waiting for the lock
+        current = getIfValid();
+        if (current == null) {
+          current = authenticate();
+        }
+        return current;
+      } finally {
+        authLock.unlock();
+      }
+    }
+
+    private String getTenantId() {
+      // the tenant of a token never changes, so the ID stays valid after the token expired
+      if (tenantId == null) {
+        tenantId = get().getToken().getTenant().get().getId();
+      }
+      return tenantId;
+    }
+
+    private void refresh() {
+      authLock.lock();
+      try {
+        if (!closed) {
+          log.debug("Refreshing Keystone token of VimInstance with name: " + vimName);
+          authenticate();
+        }
+      } catch (Exception e) {
+        log.warn(
+            "Not able to refresh Keystone token of VimInstance with name: "
+                + vimName
+                + ", it will be requested again when needed",
+            e);
+      } finally {
+        authLock.unlock();
+      }
+    }
+
+    private Access authenticate() {
+      log.debug("Authenticating against Keystone for VimInstance with name: " + vimName);
+      Access newAccess = auth.apply(credentials);
+      long now = System.currentTimeMillis();
+      long newExpiresAt =
+          newAccess.getToken().getExpires() != null
+              ? newAccess.getToken().getExpires().getTime()
+              : now + DEFAULT_TOKEN_LIFETIME;
+      access = newAccess;
+      expiresAt = newExpiresAt;
+      scheduleRefresh(refreshDelay(newExpiresAt - now));
+      return newAccess;
+    }
+
+    /**
+     * Refreshes the refresh-ahead time before the token expires, but never earlier than half of
+     * its lifetime nor earlier than {@link #MIN_REFRESH_DELAY}.
+     */
+    private long refreshDelay(long lifetimeMillis) {
+      long delay = lifetimeMillis - refreshAheadMillis;
+      delay = Math.max(delay, lifetimeMillis / 2);
+      return Math.max(delay, MIN_REFRESH_DELAY);
+    }
+
+    private synchronized void scheduleRefresh(long delayMillis) {
+      if (refresh != null) {
+        refresh.cancel(false);
+      }
+      if (closed) {
+        return;
+      }
+      refresh =
+          scheduler.schedule(
+              new Runnable() {
+                @Override
+                public void run() {
+                  refresh();
+                }
+              },
+              delayMillis,
+              TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void close() {
+      closed = true;
+      if (refresh != null) {
+        refresh.cancel(false);
+      }
+      context.close();
+    }
+  }
+}
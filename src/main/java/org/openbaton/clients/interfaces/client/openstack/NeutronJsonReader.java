@@ -0,0 +1,157 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the Neutron list responses the plugin needs token by token, keeping only the fields it uses.
+ * Unlike parsing the whole response into a tree first, the memory needed does not grow with the
+ * size of the response but only with the number of results kept.
+ */
+public class NeutronJsonReader {
+
+  private NeutronJsonReader() {}
+
+  /**
+   * Reads the FloatingIPs of a floatingips.json response.
+   *
+   * @param tenantId tenant whose FloatingIPs are kept, or null to keep all
+   */
+  public static List<FloatingIpIndex.Entry> readFloatingIps(Reader in, String tenantId)
+      throws IOException {
+    List<FloatingIpIndex.Entry> entries = new ArrayList<>();
+    JsonReader reader = new JsonReader(in);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!reader.nextName().equals("floatingips")) {
+        reader.skipValue();
+        continue;
+      }
+      reader.beginArray();
+      while (reader.hasNext()) {
+        String id = null;
+        String address = null;
+        String portId = null;
+        String fixedIpAddress = null;
+        String floatingIpTenantId = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String name = reader.nextName();
+          if (name.equals("id")) {
+            id = nextStringOrNull(reader);
+          } else if (name.equals("floating_ip_address")) {
+            address = nextStringOrNull(reader);
+          } else if (name.equals("port_id")) {
+            portId = nextStringOrNull(reader);
+          } else if (name.equals("fixed_ip_address")) {
+            fixedIpAddress = nextStringOrNull(reader);
+          } else if (name.equals("tenant_id")) {
+            floatingIpTenantId = nextStringOrNull(reader);
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+        if (address != null && (tenantId == null || tenantId.equals(floatingIpTenantId))) {
+          entries.add(new FloatingIpIndex.Entry(id, address, portId, fixedIpAddress));
+        }
+      }
+      reader.endArray();
+    }
+    reader.endObject();
+    return entries;
+  }
+
+  /**
+   * Reads the ports of a ports.json response into a map from their fixed IP addresses to their ids.
+   */
+  public static Map<String, String> readPortIdsByFixedIp(Reader in) throws IOException {
+    Map<String, String> result = new HashMap<>();
+    JsonReader reader = new JsonReader(in);
+    reader.beginObject();
+    while (reader.hasNext()) {
+      if (!reader.nextName().equals("ports")) {
+        reader.skipValue();
+        continue;
+      }
+      reader.beginArray();
+      while (reader.hasNext()) {
+        String id = null;
+        List<String> fixedIps = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+          String name = reader.nextName();
+          if (name.equals("id")) {
+            id = nextStringOrNull(reader);
+          } else if (name.equals("fixed_ips") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+            readFixedIps(reader, fixedIps);
+          } else {
+            reader.skipValue();
+          }
+        }
+        reader.endObject();
+        for (String fixedIp : fixedIps) {
+          result.put(fixedIp, id);
+        }
+      }
+      reader.endArray();
+    }
+    reader.endObject();
+    return result;
+  }
+
+  private static void readFixedIps(JsonReader reader, List<String> fixedIps) throws IOException {
+    reader.beginArray();
+    while (reader.hasNext()) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (reader.nextName().equals("ip_address")) {
+          String ipAddress = nextStringOrNull(reader);
+          if (ipAddress != null) {
+            fixedIps.add(ipAddress);
+          }
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+    }
+    reader.endArray();
+  }
+
+  private static String nextStringOrNull(JsonReader reader) throws IOException {
+    if (reader.peek() == JsonToken.NULL) {
+      reader.nextNull();
+      return null;
+    }
+    return reader.nextString();
+  }
+}
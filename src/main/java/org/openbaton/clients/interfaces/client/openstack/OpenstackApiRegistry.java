@@ -0,0 +1,205 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.inject.Module;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.openstack.glance.v1_0.GlanceApi;
+import org.jclouds.openstack.neutron.v2.NeutronApi;
+import org.jclouds.openstack.nova.v2_0.NovaApi;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the jclouds APIs built for a VimInstance, so that the Guice injector behind every
+ * NovaApi, NeutronApi and GlanceApi is created once and then shared by all calls and threads.
+ *
+ * <p>Entries are keyed by {@link VimInstanceKey}. Entries that were not used for the configured
+ * idle time are evicted and their APIs closed, which releases the executors and connection pools of
+ * the underlying contexts. When the endpoint or the credentials of a VimInstance change, the
+ * entries built for the old values are dropped as well.
+ */
+public class OpenstackApiRegistry {
+
+  private static Logger log = LoggerFactory.getLogger(OpenstackApiRegistry.class);
+
+  private final Iterable<Module> modules;
+  private final Properties overrides;
+  private final Cache<VimInstanceKey, Apis> apis;
+  private final ConcurrentMap<String, VimInstanceKey> currentKeys = new ConcurrentHashMap<>();
+
+  public OpenstackApiRegistry(
+      Iterable<Module> modules, Properties overrides, long idleTimeoutSeconds) {
+    this.modules = modules;
+    this.overrides = overrides;
+    this.apis =
+        CacheBuilder.newBuilder()
+            .expireAfterAccess(idleTimeoutSeconds, TimeUnit.SECONDS)
+            .removalListener(
+                new RemovalListener<VimInstanceKey, Apis>() {
+                  @Override
+                  public void onRemoval(RemovalNotification<VimInstanceKey, Apis> notification) {
+                    log.debug(
+                        "Closing jclouds APIs of "
+                            + notification.getKey()
+                            + " ("
+                            + notification.getCause()
+                            + ")");
+                    notification.getValue().close();
+                  }
+                })
+            .build();
+  }
+
+  public NovaApi getNovaApi(VimInstance vimInstance) {
+    return getApis(vimInstance).getNovaApi();
+  }
+
+  public NeutronApi getNeutronApi(VimInstance vimInstance) {
+    return getApis(vimInstance).getNeutronApi();
+  }
+
+  public GlanceApi getGlanceApi(VimInstance vimInstance) {
+    return getApis(vimInstance).getGlanceApi();
+  }
+
+  /**
+   * Drops and closes the APIs built for the VimInstance. The next call builds them again.
+   */
+  public void invalidate(VimInstance vimInstance) {
+    VimInstanceKey key = currentKeys.remove(VimInstanceKey.idOf(vimInstance));
+    if (key != null) {
+      apis.invalidate(key);
+    }
+    apis.invalidate(VimInstanceKey.of(vimInstance));
+  }
+
+  public void invalidateAll() {
+    currentKeys.clear();
+    apis.invalidateAll();
+  }
+
+  private Apis getApis(final VimInstance vimInstance) {
+    final VimInstanceKey key = VimInstanceKey.of(vimInstance);
+    VimInstanceKey previous = currentKeys.put(VimInstanceKey.idOf(vimInstance), key);
+    if (previous != null && !previous.equals(key) && !currentKeys.containsValue(previous)) {
+      log.info(
+          "Endpoint or credentials of VimInstance with name: "
+              + vimInstance.getName()
+              + " changed, dropping the APIs built for the old ones");
+      apis.invalidate(previous);
+    }
+    try {
+      return apis.get(
+          key,
+          new Callable<Apis>() {
+            @Override
+            public Apis call() {
+              return new Apis(vimInstance);
+            }
+          });
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * The APIs of one VimInstance. Each of them is only built when it is needed for the first time.
+   */
+  private class Apis {
+
+    private final String endpoint;
+    private final String identity;
+    private final String credential;
+    private NovaApi novaApi;
+    private NeutronApi neutronApi;
+    private GlanceApi glanceApi;
+
+    private Apis(VimInstance vimInstance) {
+      this.endpoint = vimInstance.getAuthUrl();
+      this.identity = vimInstance.getTenant() + ":" + vimInstance.getUsername();
+      this.credential = vimInstance.getPassword();
+    }
+
+    private synchronized NovaApi getNovaApi() {
+      if (novaApi == null) {
+        novaApi = build("openstack-nova", NovaApi.class);
+      }
+      return novaApi;
+    }
+
+    private synchronized NeutronApi getNeutronApi() {
+      if (neutronApi == null) {
+        neutronApi = build("openstack-neutron", NeutronApi.class);
+      }
+      return neutronApi;
+    }
+
+    private synchronized GlanceApi getGlanceApi() {
+      if (glanceApi == null) {
+        glanceApi = build("openstack-glance", GlanceApi.class);
+      }
+      return glanceApi;
+    }
+
+    private <A extends Closeable> A build(String provider, Class<A> api) {
+      log.debug("Building " + api.getSimpleName() + " for endpoint: " + endpoint);
+      return ContextBuilder.newBuilder(provider)
+          .endpoint(endpoint)
+          .credentials(identity, credential)
+          .modules(modules)
+          .overrides(overrides)
+          .buildApi(api);
+    }
+
+    private synchronized void close() {
+      closeQuietly(novaApi);
+      closeQuietly(neutronApi);
+      closeQuietly(glanceApi);
+    }
+
+    private void closeQuietly(Closeable closeable) {
+      if (closeable == null) {
+        return;
+      }
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        log.warn("Not able to close jclouds API of endpoint: " + endpoint, e);
+      }
+    }
+  }
+}
@@ -21,9 +21,28 @@
 package org.openbaton.clients.interfaces.client.openstack;
 
 import com.google.common.base.Function;
+import com.google.common.base.Objects;
 import com.google.common.base.Optional;
-import com.google.common.collect.FluentIterable;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
@@ -31,16 +50,13 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
-import com.google.inject.Key;
 import com.google.inject.Module;
-import com.google.inject.TypeLiteral;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.net.util.SubnetUtils;
-import org.jclouds.ContextBuilder;
-import org.jclouds.collect.PagedIterable;
-import org.jclouds.compute.ComputeServiceContext;
-import org.jclouds.domain.Credentials;
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
 import org.jclouds.io.Payload;
 import org.jclouds.io.payloads.ByteArrayPayload;
 import org.jclouds.io.payloads.InputStreamPayload;
@@ -48,6 +64,7 @@ import org.jclouds.logging.slf4j.config.SLF4JLoggingModule;
 import org.jclouds.openstack.glance.v1_0.GlanceApi;
 import org.jclouds.openstack.glance.v1_0.domain.ContainerFormat;
 import org.jclouds.openstack.glance.v1_0.domain.DiskFormat;
+import org.jclouds.openstack.glance.v1_0.domain.Image;
 import org.jclouds.openstack.glance.v1_0.domain.ImageDetails;
 import org.jclouds.openstack.glance.v1_0.features.ImageApi;
 import org.jclouds.openstack.glance.v1_0.options.CreateImageOptions;
@@ -79,6 +96,7 @@ import org.jclouds.openstack.nova.v2_0.domain.RebootType;
 import org.jclouds.openstack.nova.v2_0.features.FlavorApi;
 import org.jclouds.openstack.nova.v2_0.features.ServerApi;
 import org.jclouds.openstack.nova.v2_0.options.CreateServerOptions;
+import org.jclouds.openstack.v2_0.domain.PaginatedCollection;
 import org.jclouds.openstack.v2_0.domain.Resource;
 import org.jclouds.openstack.v2_0.options.PaginationOptions;
 import org.jclouds.scriptbuilder.ScriptBuilder;
@@ -97,26 +115,40 @@ import org.openbaton.vim.drivers.interfaces.VimDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.lang.reflect.InvocationTargetException;
-import java.net.HttpURLConnection;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLEncoder;
 import java.net.UnknownHostException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.rmi.RemoteException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import static org.jclouds.scriptbuilder.domain.Statements.exec;
@@ -131,7 +163,58 @@ public class OpenstackClient extends VimDriver {
   Iterable<Module> modules;
   Properties overrides;
   private static Logger log = LoggerFactory.getLogger(OpenstackClient.class);
-  private static Lock lock;
+  private static final FloatingIpLocks floatingIpLocks = new FloatingIpLocks(256);
+  /** Bytes of an image read ahead of the upload, so that the disk or network reads in big chunks. */
+  private static final int UPLOAD_BUFFER_SIZE = 1024 * 1024;
+  /**
+   * Endpoints, resources and filters whose list API rejected the query filters, they are listed
+   * completely and filtered by the plugin instead.
+   */
+  private static final Set<String> rejectedFilters =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private static final RestTransport.ResponseReader<Map<String, String>> PORT_READER =
+      new RestTransport.ResponseReader<Map<String, String>>() {
+        @Override
+        public Map<String, String> read(Reader reader) throws IOException {
+          return NeutronJsonReader.readPortIdsByFixedIp(reader);
+        }
+      };
+  private static OpenstackApiRegistry apiRegistry;
+  private static KeystoneTokenCache tokenCache;
+  private static ScheduledExecutorService scheduler;
+  private static ListeningExecutorService workers;
+  private static ServerStatusWatcher serverStatusWatcher;
+  private static BootTimeEstimator bootTimeEstimator = new BootTimeEstimator();
+  private static long launchTimeout;
+  private static long deleteTimeout;
+  private static int bulkLaunchConcurrency;
+  /** Creates the VMs of bulk launches, apart from the workers running the status ticks. */
+  private static ExecutorService bulkLaunchers;
+  /**
+   * Finishes the launches of booted VMs. Their FloatingIP assignments wait for the stripe of their
+   * tenant, so they must not take the workers the status and import ticks run on.
+   */
+  private static ExecutorService bootCompleters;
+  private static RestTransport restTransport;
+  /** Port and FloatingIP ids found by the targeted Neutron lookups. */
+  private static Cache<String, String> neutronLookups;
+  private static Cache<VimInstanceKey, ResolvedZone> zones;
+  private static Cache<VimInstanceKey, FloatingIpIndex> floatingIpIndexes;
+  private static Cache<VimInstanceKey, FloatingIpReservoir> floatingIpReservoirs;
+  private static int floatingIpLowWaterMark;
+  private static long floatingIpClaimTimeout;
+  private static Cache<VimInstanceKey, ImageChecksumIndex> imageIndexes;
+  private static boolean imageDeduplication;
+  private static int distributionQueuedChunks;
+  private static long distributionProgressInterval;
+  private static int uploadAttempts;
+  private static long uploadRetryDelay;
+  private static boolean uploadSpool;
+  private static long uploadProgressInterval;
+  private static ImageImportTracker imageImportTracker;
+  private static long importTimeout;
+  private static int imageListPageSize;
+  private static FlavorCache flavorCache;
   private Gson gson = new GsonBuilder().create();
 
   public OpenstackClient() throws RemoteException {
@@ -146,7 +229,6 @@ public class OpenstackClient extends VimDriver {
   public static void main(String[] args)
       throws NoSuchMethodException, IOException, InstantiationException, TimeoutException,
           IllegalAccessException, InvocationTargetException {
-    OpenstackClient.lock = new ReentrantLock();
     if (args.length == 4) {
       PluginStarter.registerPlugin(
           OpenstackClient.class,
@@ -168,18 +250,253 @@ public class OpenstackClient extends VimDriver {
     if (sslChecksDisabled.trim().equals("true")) {
       DisableSSLValidation.disableChecks();
     }
+    synchronized (OpenstackClient.class) {
+      if (apiRegistry == null) {
+        long idleTimeout =
+            Long.parseLong(properties.getProperty("client-cache-idle-timeout", "600").trim());
+        log.debug("Idle timeout of cached jclouds APIs: {} seconds", idleTimeout);
+        apiRegistry = new OpenstackApiRegistry(modules, overrides, idleTimeout);
+      }
+      if (scheduler == null) {
+        scheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("openstack-plugin-scheduler-%d")
+                    .build());
+      }
+      if (workers == null) {
+        int workerThreads =
+            Integer.parseInt(properties.getProperty("async-worker-threads", "20").trim());
+        log.debug("Asynchronous operations are run by {} worker threads", workerThreads);
+        workers =
+            MoreExecutors.listeningDecorator(
+                Executors.newFixedThreadPool(
+                    workerThreads,
+                    new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("openstack-plugin-worker-%d")
+                        .build()));
+      }
+      if (bulkLaunchers == null) {
+        bulkLaunchConcurrency =
+            Integer.parseInt(properties.getProperty("bulk-launch-concurrency", "10").trim());
+        log.debug("Bulk launches create at most {} VMs at the same time", bulkLaunchConcurrency);
+        bulkLaunchers =
+            Executors.newFixedThreadPool(
+                bulkLaunchConcurrency,
+                new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("openstack-plugin-bulk-launch-%d")
+                    .build());
+      }
+      if (bootCompleters == null) {
+        int bootCompletionThreads =
+            Integer.parseInt(properties.getProperty("boot-completion-threads", "10").trim());
+        log.debug("Launches of booted VMs are finished by {} threads", bootCompletionThreads);
+        bootCompleters =
+            Executors.newFixedThreadPool(
+                bootCompletionThreads,
+                new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("openstack-plugin-boot-completion-%d")
+                    .build());
+      }
+      if (restTransport == null) {
+        int connectTimeout =
+            Integer.parseInt(properties.getProperty("rest-connect-timeout", "10").trim());
+        int readTimeout =
+            Integer.parseInt(properties.getProperty("rest-read-timeout", "60").trim());
+        restTransport = new RestTransport(connectTimeout * 1000, readTimeout * 1000);
+      }
+      if (neutronLookups == null) {
+        long lookupTtl =
+            Long.parseLong(properties.getProperty("neutron-lookup-cache-ttl", "60").trim());
+        neutronLookups =
+            CacheBuilder.newBuilder()
+                .expireAfterWrite(lookupTtl, TimeUnit.SECONDS)
+                .maximumSize(1024)
+                .build();
+      }
+      if (serverStatusWatcher == null) {
+        long minInterval =
+            Long.parseLong(
+                properties.getProperty("server-status-poll-min-interval", "1000").trim());
+        long maxInterval =
+            Long.parseLong(
+                properties.getProperty("server-status-poll-max-interval", "15000").trim());
+        double multiplier =
+            Double.parseDouble(
+                properties.getProperty("server-status-poll-multiplier", "1.5").trim());
+        double jitter =
+            Double.parseDouble(properties.getProperty("server-status-poll-jitter", "0.2").trim());
+        launchTimeout =
+            TimeUnit.SECONDS.toMillis(
+                Long.parseLong(properties.getProperty("launch-timeout", "900").trim()));
+        deleteTimeout =
+            TimeUnit.SECONDS.toMillis(
+                Long.parseLong(properties.getProperty("delete-timeout", "300").trim()));
+        log.debug("Status of awaited VMs is checked every {} to {} ms", minInterval, maxInterval);
+        serverStatusWatcher =
+            new ServerStatusWatcher(
+                new ServerStatusWatcher.ServerSource() {
+                  @Override
+                  public Iterable<org.jclouds.openstack.nova.v2_0.domain.Server> listServers(
+                      VimInstance vimInstance) {
+                    return apiRegistry
+                        .getNovaApi(vimInstance)
+                        .getServerApi(getZone(vimInstance))
+                        .listInDetail()
+                        .concat();
+                  }
+                },
+                scheduler,
+                workers,
+                new WaitPolicy(minInterval, maxInterval, multiplier, jitter));
+      }
+      if (tokenCache == null) {
+        long idleTimeout =
+            Long.parseLong(properties.getProperty("client-cache-idle-timeout", "600").trim());
+        long refreshAhead =
+            Long.parseLong(properties.getProperty("keystone-token-refresh-ahead", "300").trim());
+        long expiryMargin =
+            Long.parseLong(properties.getProperty("keystone-token-expiry-margin", "60").trim());
+        log.debug("Keystone tokens are refreshed {} seconds before they expire", refreshAhead);
+        tokenCache = new KeystoneTokenCache(scheduler, refreshAhead, expiryMargin, idleTimeout);
+      }
+      if (zones == null) {
+        long zoneTtl = Long.parseLong(properties.getProperty("zone-cache-ttl", "300").trim());
+        log.debug("Resolved zones are cached for {} seconds", zoneTtl);
+        zones = CacheBuilder.newBuilder().expireAfterWrite(zoneTtl, TimeUnit.SECONDS).build();
+      }
+      if (floatingIpIndexes == null) {
+        long floatingIpTtl =
+            Long.parseLong(properties.getProperty("floating-ip-index-ttl", "10").trim());
+        log.debug("Listed FloatingIPs are reused for {} seconds", floatingIpTtl);
+        floatingIpIndexes =
+            CacheBuilder.newBuilder().expireAfterWrite(floatingIpTtl, TimeUnit.SECONDS).build();
+      }
+      if (floatingIpReservoirs == null) {
+        floatingIpLowWaterMark =
+            Integer.parseInt(
+                properties.getProperty("floating-ip-reservoir-low-water-mark", "2").trim());
+        log.debug("FloatingIP reservoirs are kept at {} free FloatingIPs", floatingIpLowWaterMark);
+        floatingIpClaimTimeout =
+            Long.parseLong(properties.getProperty("floating-ip-claim-timeout", "300").trim())
+                * 1000;
+        floatingIpReservoirs = CacheBuilder.newBuilder().build();
+      }
+      if (imageIndexes == null) {
+        imageListPageSize =
+            Integer.parseInt(properties.getProperty("image-list-page-size", "200").trim());
+        imageDeduplication =
+            Boolean.parseBoolean(properties.getProperty("image-deduplication", "false").trim());
+        long imageIndexTtl =
+            Long.parseLong(properties.getProperty("image-checksum-index-ttl", "300").trim());
+        log.debug("Checksums of listed images are reused for {} seconds", imageIndexTtl);
+        imageIndexes =
+            CacheBuilder.newBuilder().expireAfterWrite(imageIndexTtl, TimeUnit.SECONDS).build();
+        distributionQueuedChunks =
+            Integer.parseInt(
+                properties.getProperty("image-distribution-queued-chunks", "16").trim());
+        distributionProgressInterval =
+            Long.parseLong(
+                properties.getProperty("image-distribution-progress-interval", "10").trim());
+        uploadAttempts =
+            Math.max(
+                1, Integer.parseInt(properties.getProperty("image-upload-attempts", "3").trim()));
+        uploadRetryDelay =
+            TimeUnit.SECONDS.toMillis(
+                Long.parseLong(properties.getProperty("image-upload-retry-delay", "10").trim()));
+        uploadSpool =
+            Boolean.parseBoolean(properties.getProperty("image-upload-spool", "true").trim());
+        uploadProgressInterval =
+            Long.parseLong(properties.getProperty("image-upload-progress-interval", "30").trim());
+      }
+      if (imageImportTracker == null) {
+        long minInterval =
+            Long.parseLong(properties.getProperty("image-import-poll-min-interval", "2000").trim());
+        long maxInterval =
+            Long.parseLong(
+                properties.getProperty("image-import-poll-max-interval", "30000").trim());
+        long finishedTtl =
+            TimeUnit.SECONDS.toMillis(
+                Long.parseLong(properties.getProperty("image-import-cache-ttl", "600").trim()));
+        importTimeout =
+            TimeUnit.SECONDS.toMillis(
+                Long.parseLong(properties.getProperty("image-import-timeout", "3600").trim()));
+        log.debug("Pending image imports are checked every {} to {} ms", minInterval, maxInterval);
+        imageImportTracker =
+            new ImageImportTracker(
+                new ImageImportTracker.ImageSource() {
+                  @Override
+                  public Iterable<ImageDetails> listImages(
+                      VimInstance vimInstance, Date changedSince) {
+                    return pageImageDetails(vimInstance, changedSince);
+                  }
+                },
+                scheduler,
+                workers,
+                new WaitPolicy(minInterval, maxInterval, 1.5, 0.2),
+                finishedTtl);
+      }
+      if (flavorCache == null) {
+        long flavorTtl = Long.parseLong(properties.getProperty("flavor-cache-ttl", "300").trim());
+        log.debug("Flavors are refreshed in the background after {} seconds", flavorTtl);
+        flavorCache =
+            new FlavorCache(
+                new FlavorCache.FlavorSource() {
+                  @Override
+                  public Collection<DeploymentFlavour> listFlavors(VimInstance vimInstance) {
+                    return fetchFlavors(vimInstance);
+                  }
+                },
+                workers,
+                TimeUnit.SECONDS.toMillis(flavorTtl));
+      }
+    }
+  }
+
+  /**
+   * Drops everything cached for the VimInstance, e.g. after it was changed outside of the NFVO.
+   */
+  public void invalidate(VimInstance vimInstance) {
+    apiRegistry.invalidate(vimInstance);
+    tokenCache.invalidate(vimInstance);
+    zones.invalidate(VimInstanceKey.of(vimInstance));
+    floatingIpIndexes.invalidate(VimInstanceKey.of(vimInstance));
+    floatingIpReservoirs.invalidate(VimInstanceKey.of(vimInstance));
+    imageIndexes.invalidate(VimInstanceKey.of(vimInstance));
+    flavorCache.invalidate(vimInstance);
   }
 
+  /**
+   * Returns the zone of the VimInstance. A resolved zone is reused until the configured TTL has
+   * passed or the Location of the VimInstance changed.
+   */
   private String getZone(VimInstance vimInstance) {
-    NovaApi novaApi =
-        ContextBuilder.newBuilder("openstack-nova")
-            .endpoint(vimInstance.getAuthUrl())
-            .credentials(
-                vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                vimInstance.getPassword())
-            .modules(modules)
-            .overrides(overrides)
-            .buildApi(NovaApi.class);
+    VimInstanceKey key = VimInstanceKey.of(vimInstance);
+    String locationName =
+        vimInstance.getLocation() != null ? vimInstance.getLocation().getName() : null;
+    ResolvedZone resolved = zones.getIfPresent(key);
+    if (resolved != null) {
+      if (Objects.equal(resolved.locationName, locationName)) {
+        return resolved.zone;
+      }
+      log.debug(
+          "Location of VimInstance with name: "
+              + vimInstance.getName()
+              + " changed to: "
+              + locationName
+              + ", resolving its zone again");
+    }
+    String zone = resolveZone(vimInstance);
+    zones.put(key, new ResolvedZone(locationName, zone));
+    return zone;
+  }
+
+  private String resolveZone(VimInstance vimInstance) {
+    NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
     Set<String> zones = novaApi.getConfiguredRegions();
     log.debug("Available openstack environment zones: " + zones);
     String zone = null;
@@ -233,57 +550,64 @@ public class OpenstackClient extends VimDriver {
       String userData)
       throws VimDriverException {
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
 
       List<String> networkIds = getNetowrkIdsFromNames(vimInstance, network);
 
       ServerApi serverApi = novaApi.getServerApi(getZone(vimInstance));
-      String script = new ScriptBuilder().addStatement(exec(userData)).render(OsFamily.UNIX);
-      CreateServerOptions options;
-      if (keypair.equals("")) {
-        options =
-            CreateServerOptions.Builder.networks(networkIds)
-                .securityGroupNames(secGroup)
-                .userData(script.getBytes());
-
-      } else {
-
-        options =
-            CreateServerOptions.Builder.keyPairName(keypair)
-                .networks(networkIds)
-                .securityGroupNames(secGroup)
-                .userData(script.getBytes());
-      }
-
-      log.debug(
-          "Keypair: "
-              + keypair
-              + ", SecGroup, "
-              + secGroup
-              + ", imageId: "
-              + imageId
-              + ", flavorId: "
-              + flavorId
-              + ", networks: "
-              + networkIds);
-      String extId = serverApi.create(name, imageId, flavorId, options).getId();
-      Server server = getServerById(vimInstance, extId);
-      log.debug("Created Server: " + server);
-      return server;
+      return createServer(
+          vimInstance, serverApi, name, imageId, flavorId, keypair, networkIds, secGroup, userData);
     } catch (Exception e) {
       log.error(e.getMessage(), e);
       throw new VimDriverException(e.getMessage());
     }
   }
 
+  private Server createServer(
+      VimInstance vimInstance,
+      ServerApi serverApi,
+      String name,
+      String imageId,
+      String flavorId,
+      String keypair,
+      List<String> networkIds,
+      Set<String> secGroup,
+      String userData)
+      throws VimDriverException {
+    String script = new ScriptBuilder().addStatement(exec(userData)).render(OsFamily.UNIX);
+    CreateServerOptions options;
+    if (keypair.equals("")) {
+      options =
+          CreateServerOptions.Builder.networks(networkIds)
+              .securityGroupNames(secGroup)
+              .userData(script.getBytes());
+
+    } else {
+
+      options =
+          CreateServerOptions.Builder.keyPairName(keypair)
+              .networks(networkIds)
+              .securityGroupNames(secGroup)
+              .userData(script.getBytes());
+    }
+
+    log.debug(
+        "Keypair: "
+            + keypair
+            + ", SecGroup, "
+            + secGroup
+            + ", imageId: "
+            + imageId
+            + ", flavorId: "
+            + flavorId
+            + ", networks: "
+            + networkIds);
+    String extId = serverApi.create(name, imageId, flavorId, options).getId();
+    Server server = getServerById(vimInstance, extId);
+    log.debug("Created Server: " + server);
+    return server;
+  }
+
   private List<String> getNetowrkIdsFromNames(
       VimInstance vimInstance, Set<VNFDConnectionPoint> networks) throws VimDriverException {
     List<String> res = new ArrayList<>();
@@ -343,7 +667,50 @@ public class OpenstackClient extends VimDriver {
       Map<String, String> floatingIp,
       Set<org.openbaton.catalogue.security.Key> keys)
       throws VimDriverException {
-    boolean bootCompleted = false;
+    ListenableFuture<Server> future =
+        launchInstanceAsync(
+            vimInstance,
+            name,
+            imageId,
+            flavorId,
+            keypair,
+            network,
+            secGroup,
+            userData,
+            floatingIp,
+            keys);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.cancel(false);
+      throw new VimDriverException("Interrupted while waiting for VM with hostname: " + name);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof VimDriverException) {
+        throw (VimDriverException) e.getCause();
+      }
+      throw new VimDriverException(e.getCause().getMessage());
+    }
+  }
+
+  /**
+   * Launches a VM without waiting for it to boot. The returned future completes with the VM once
+   * it is ACTIVE and its FloatingIPs are assigned, or fails with a VimDriverException if it went
+   * into ERROR. The status of the VM is checked by the shared scheduler, so no thread is blocked
+   * while the VM boots.
+   */
+  public ListenableFuture<Server> launchInstanceAsync(
+      VimInstance vimInstance,
+      String name,
+      String imageId,
+      String flavorId,
+      String keypair,
+      Set<VNFDConnectionPoint> network,
+      Set<String> secGroup,
+      String userData,
+      Map<String, String> floatingIp,
+      Set<org.openbaton.catalogue.security.Key> keys)
+      throws VimDriverException {
     if (keys != null && !keys.isEmpty()) {
       userData = addKeysToUserData(userData, keys);
     }
@@ -358,54 +725,243 @@ public class OpenstackClient extends VimDriver {
             + server.getExtId()
             + " in status "
             + server.getStatus());
-    while (bootCompleted == false) {
-      log.debug("Waiting for VM with hostname: " + name + " to finish the launch");
-      try {
-        Thread.sleep(1000);
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+    return awaitBoot(vimInstance, name, server, imageId, flavorId, floatingIp);
+  }
+
+  /**
+   * Launches several VMs at once, e.g. to scale out a VDU. The zone and the network IDs are
+   * resolved once for all of them, the VMs of all bulk launches are created by at most
+   * bulk-launch-concurrency threads of their own, and their boots are awaited together by the
+   * status watcher. The returned futures are in
+   * the order of the specs and complete independently, like the one of launchInstanceAsync.
+   */
+  public List<ListenableFuture<Server>> launchInstances(
+      VimInstance vimInstance, List<InstanceSpec> specs) throws VimDriverException {
+    log.info("Deploying " + specs.size() + " VMs on VimInstance: " + vimInstance.getName());
+    ServerApi serverApi;
+    try {
+      serverApi = apiRegistry.getNovaApi(vimInstance).getServerApi(getZone(vimInstance));
+    } catch (Exception e) {
+      log.error(e.getMessage(), e);
+      throw new VimDriverException(e.getMessage());
+    }
+    Map<Set<VNFDConnectionPoint>, List<String>> networkIds = new HashMap<>();
+    for (InstanceSpec spec : specs) {
+      if (!networkIds.containsKey(spec.getNetworks())) {
+        networkIds.put(spec.getNetworks(), getNetowrkIdsFromNames(vimInstance, spec.getNetworks()));
+      }
+    }
+    BulkLaunch bulkLaunch = new BulkLaunch(vimInstance, serverApi, specs, networkIds);
+    for (int i = 0; i < Math.min(bulkLaunchConcurrency, specs.size()); i++) {
+      bulkLaunchers.execute(bulkLaunch);
+    }
+    return new ArrayList<ListenableFuture<Server>>(bulkLaunch.results);
+  }
+
+  /**
+   * Creates the VMs of a bulk launch. Every thread running it takes the next spec until all are
+   * created, so the number of threads bounds the concurrent creates.
+   */
+  private class BulkLaunch implements Runnable {
+
+    private final VimInstance vimInstance;
+    private final ServerApi serverApi;
+    private final List<InstanceSpec> specs;
+    private final Map<Set<VNFDConnectionPoint>, List<String>> networkIds;
+    private final List<SettableFuture<Server>> results = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    private BulkLaunch(
+        VimInstance vimInstance,
+        ServerApi serverApi,
+        List<InstanceSpec> specs,
+        Map<Set<VNFDConnectionPoint>, List<String>> networkIds) {
+      this.vimInstance = vimInstance;
+      this.serverApi = serverApi;
+      this.specs = specs;
+      this.networkIds = networkIds;
+      for (int i = 0; i < specs.size(); i++) {
+        results.add(SettableFuture.<Server>create());
+      }
+    }
+
+    @Override
+    public void run() {
+      int index;
+      while ((index = next.getAndIncrement()) < specs.size()) {
+        launch(specs.get(index), results.get(index));
       }
-      server = getServerById(vimInstance, server.getExtId());
-      if (server.getStatus().equals("ACTIVE")) {
-        log.debug("Finished deployment of VM with hostname: " + name);
-        bootCompleted = true;
+    }
+
+    private void launch(InstanceSpec spec, final SettableFuture<Server> result) {
+      try {
+        String userData = spec.getUserData();
+        if (spec.getKeys() != null && !spec.getKeys().isEmpty()) {
+          userData = addKeysToUserData(userData, spec.getKeys());
+        }
+        Server server =
+            createServer(
+                vimInstance,
+                serverApi,
+                spec.getName(),
+                spec.getImageId(),
+                spec.getFlavorId(),
+                spec.getKeypair(),
+                networkIds.get(spec.getNetworks()),
+                spec.getSecGroup(),
+                userData);
+        log.info(
+            "Deployed VM ( "
+                + server.getName()
+                + " ) with extId: "
+                + server.getExtId()
+                + " in status "
+                + server.getStatus());
+        Futures.addCallback(
+            awaitBoot(
+                vimInstance,
+                spec.getName(),
+                server,
+                spec.getImageId(),
+                spec.getFlavorId(),
+                spec.getFloatingIp()),
+            new FutureCallback<Server>() {
+              @Override
+              public void onSuccess(Server server) {
+                result.set(server);
+              }
+
+              @Override
+              public void onFailure(Throwable t) {
+                result.setException(t);
+              }
+            });
+      } catch (Exception e) {
+        log.error("Failed to launch VM with hostname: " + spec.getName(), e);
+        result.setException(
+            e instanceof VimDriverException ? e : new VimDriverException(e.getMessage()));
       }
-      if (server.getStatus().equals("ERROR")) {
+    }
+  }
+
+  private ListenableFuture<Server> awaitBoot(
+      VimInstance vimInstance,
+      String name,
+      Server server,
+      String imageId,
+      String flavorId,
+      Map<String, String> floatingIp) {
+    log.debug("Waiting for VM with hostname: " + name + " to finish the launch");
+    return Futures.transform(
+        serverStatusWatcher.watch(
+            vimInstance,
+            server.getExtId(),
+            EnumSet.of(
+                org.jclouds.openstack.nova.v2_0.domain.Server.Status.ACTIVE,
+                org.jclouds.openstack.nova.v2_0.domain.Server.Status.ERROR),
+            launchTimeout,
+            bootTimeEstimator.getExpectedMillis(vimInstance.getAuthUrl(), imageId, flavorId)),
+        new BootCompletion(vimInstance, name, server.getExtId(), imageId, flavorId, floatingIp),
+        bootCompleters);
+  }
+
+  /**
+   * Finishes the launch of a VM once it left the BUILD status.
+   */
+  private class BootCompletion
+      implements AsyncFunction<org.jclouds.openstack.nova.v2_0.domain.Server, Server> {
+
+    private final VimInstance vimInstance;
+    private final String name;
+    private final String extId;
+    private final String imageId;
+    private final String flavorId;
+    private final Map<String, String> floatingIp;
+    private final long started = System.currentTimeMillis();
+
+    private BootCompletion(
+        VimInstance vimInstance,
+        String name,
+        String extId,
+        String imageId,
+        String flavorId,
+        Map<String, String> floatingIp) {
+      this.vimInstance = vimInstance;
+      this.name = name;
+      this.extId = extId;
+      this.imageId = imageId;
+      this.flavorId = flavorId;
+      this.floatingIp = floatingIp;
+    }
+
+    @Override
+    public ListenableFuture<Server> apply(
+        org.jclouds.openstack.nova.v2_0.domain.Server jcloudsServer) throws Exception {
+      Server server = getServerById(vimInstance, extId);
+      if (jcloudsServer.getStatus() == org.jclouds.openstack.nova.v2_0.domain.Server.Status.ERROR) {
         log.error("Failed to launch VM with hostname: " + name + " -> Went into ERROR");
         VimDriverException vimDriverException = new VimDriverException(server.getExtendedStatus());
         vimDriverException.setServer(server);
         throw vimDriverException;
       }
-    }
-    if (floatingIp != null && floatingIp.size() > 0) {
-      lock.lock();
-      log.debug("Assigning FloatingIPs to VM with hostname: " + name);
-      log.debug("FloatingIPs are: " + floatingIp);
-      int freeIps = listFloatingIps(vimInstance, true).size();
-      int ipsNeeded = floatingIp.size();
-      if (freeIps < ipsNeeded) {
-        log.info(
-            "Insufficient number of ips allocated to tenant, will try to allocate more ips from pool");
-        log.debug("Getting the pool name of a floating ip pool");
-        String pool_name = getIpPoolName(vimInstance);
-        get_allocated(vimInstance, pool_name, ipsNeeded - freeIps);
-      }
-      if (listFloatingIps(vimInstance, true).size() >= floatingIp.size()) {
-        for (Map.Entry<String, String> fip : floatingIp.entrySet()) {
-          associateFloatingIpToNetwork(vimInstance, server, fip);
-          log.info(
-              "Assigned FloatingIPs to VM with hostname: "
-                  + name
-                  + " -> FloatingIPs: "
-                  + server.getFloatingIps());
-        }
-      } else {
-        log.error(
-            "Cannot assign FloatingIPs to VM with hostname: " + name + ". No FloatingIPs left...");
+      long bootTime = System.currentTimeMillis() - started;
+      log.debug("Finished deployment of VM with hostname: " + name + " in " + bootTime + " ms");
+      bootTimeEstimator.record(vimInstance.getAuthUrl(), imageId, flavorId, bootTime);
+      if (floatingIp != null && floatingIp.size() > 0) {
+        assignFloatingIps(vimInstance, name, server, floatingIp);
       }
-      lock.unlock();
+      return Futures.immediateFuture(server);
+    }
+  }
+
+  private void assignFloatingIps(
+      VimInstance vimInstance, String name, Server server, Map<String, String> floatingIp)
+      throws VimDriverException {
+    log.debug("Assigning FloatingIPs to VM with hostname: " + name);
+    log.debug("FloatingIPs are: " + floatingIp);
+    for (Map.Entry<String, String> fip : floatingIp.entrySet()) {
+      associateFloatingIpToNetwork(vimInstance, server, fip);
+    }
+    log.info(
+        "Assigned FloatingIPs to VM with hostname: "
+            + name
+            + " -> FloatingIPs: "
+            + server.getFloatingIps());
+  }
+
+  /**
+   * Returns the FloatingIP reservoir of the VimInstance, creating it empty on first use. Only random
+   * claims fill it, so a tenant which only asks for FloatingIPs it chose gets none allocated.
+   */
+  private FloatingIpReservoir getFloatingIpReservoir(final VimInstance vimInstance)
+      throws VimDriverException {
+    try {
+      return floatingIpReservoirs.get(
+          VimInstanceKey.of(vimInstance),
+          new Callable<FloatingIpReservoir>() {
+            @Override
+            public FloatingIpReservoir call() {
+              return new FloatingIpReservoir(
+                  new FloatingIpReservoir.Source() {
+                    @Override
+                    public Collection<String> listFree() throws VimDriverException {
+                      return listFloatingIps(vimInstance, true);
+                    }
+
+                    @Override
+                    public void allocate(int count) {
+                      get_allocated(vimInstance, getIpPoolName(vimInstance), count);
+                    }
+                  },
+                  workers,
+                  floatingIpLowWaterMark,
+                  floatingIpClaimTimeout);
+            }
+          });
+    } catch (ExecutionException e) {
+      log.error(e.getMessage(), e);
+      throw new VimDriverException(e.getMessage());
     }
-    return server;
   }
 
   private String addKeysToUserData(
@@ -440,15 +996,7 @@ public class OpenstackClient extends VimDriver {
   public void rebootServer(VimInstance vimInstance, String extId, RebootType type)
       throws VimDriverException {
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       ServerApi serverApi = novaApi.getServerApi(getZone(vimInstance));
       serverApi.reboot(extId, type);
     } catch (Exception e) {
@@ -459,15 +1007,7 @@ public class OpenstackClient extends VimDriver {
 
   public void deleteServerById(VimInstance vimInstance, String extId) throws VimDriverException {
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       ServerApi serverApi = novaApi.getServerApi(getZone(vimInstance));
       serverApi.delete(extId);
     } catch (Exception e) {
@@ -479,22 +1019,26 @@ public class OpenstackClient extends VimDriver {
   @Override
   public void deleteServerByIdAndWait(VimInstance vimInstance, String extId)
       throws VimDriverException {
-    boolean deleteCompleted = false;
     log.debug("Deleting VM with ExtId: " + extId);
     deleteServerById(vimInstance, extId);
-    while (deleteCompleted == false) {
-      log.debug("Waiting until VM with ExtId: " + extId + " is deleted...");
-      try {
-        Thread.sleep(1000);
-      } catch (InterruptedException e) {
-        e.printStackTrace();
-      }
-      try {
-        getServerById(vimInstance, extId);
-      } catch (NullPointerException e) {
-        deleteCompleted = true;
-        log.info("Deleted VM with ExtId: " + extId);
-      }
+    log.debug("Waiting until VM with ExtId: " + extId + " is deleted...");
+    ListenableFuture<org.jclouds.openstack.nova.v2_0.domain.Server> deleted =
+        serverStatusWatcher.watch(
+            vimInstance,
+            extId,
+            EnumSet.of(org.jclouds.openstack.nova.v2_0.domain.Server.Status.DELETED),
+            deleteTimeout,
+            -1);
+    try {
+      deleted.get();
+      log.info("Deleted VM with ExtId: " + extId);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      deleted.cancel(false);
+      throw new VimDriverException("Interrupted while waiting for VM with ExtId: " + extId);
+    } catch (ExecutionException e) {
+      log.error(e.getCause().getMessage(), e.getCause());
+      throw new VimDriverException(e.getCause().getMessage());
     }
   }
 
@@ -502,33 +1046,15 @@ public class OpenstackClient extends VimDriver {
   public List<NFVImage> listImages(VimInstance vimInstance) throws VimDriverException {
     log.debug("Listing images for VimInstance with name: " + vimInstance.getName());
     try {
-      GlanceApi glanceApi =
-          ContextBuilder.newBuilder("openstack-glance")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(GlanceApi.class);
-      ImageApi imageApi = glanceApi.getImageApi(getZone(vimInstance));
-      ListImageOptions listImageOptions = new ListImageOptions();
-      listImageOptions.limit(1000);
       List<NFVImage> images = new ArrayList<NFVImage>();
-      for (ImageDetails jcloudsImage : imageApi.listInDetail(listImageOptions).toList()) {
-        NFVImage image = new NFVImage();
+      // the complete listing refreshes the checksum index on the way
+      ImageChecksumIndex index = new ImageChecksumIndex(Collections.<ImageDetails>emptyList());
+      for (ImageDetails jcloudsImage : pageImageDetails(vimInstance, null)) {
         log.debug("Found image: " + jcloudsImage.getName());
-        image.setName(jcloudsImage.getName());
-        image.setExtId(jcloudsImage.getId());
-        image.setMinRam(jcloudsImage.getMinRam());
-        image.setMinDiskSpace(jcloudsImage.getMinDisk());
-        image.setCreated(jcloudsImage.getCreatedAt());
-        image.setUpdated(jcloudsImage.getUpdatedAt());
-        image.setIsPublic(jcloudsImage.isPublic());
-        image.setDiskFormat(jcloudsImage.getDiskFormat().toString().toUpperCase());
-        image.setContainerFormat(jcloudsImage.getContainerFormat().toString().toUpperCase());
-        images.add(image);
+        index.add(jcloudsImage);
+        images.add(toNFVImage(jcloudsImage));
       }
+      imageIndexes.put(VimInstanceKey.of(vimInstance), index);
       log.info(
           "Listed images for VimInstance with name: "
               + vimInstance.getName()
@@ -541,23 +1067,90 @@ public class OpenstackClient extends VimDriver {
     }
   }
 
+  /**
+   * Iterates over all images of the VimInstance without holding them in memory. The images are
+   * listed page by page while iterating and converted one by one, so a caller which stops early
+   * does not request the remaining pages. Every iteration lists the images anew. Failures of the
+   * listing are thrown by the iteration as unchecked exceptions.
+   */
+  public Iterable<NFVImage> iterateImages(VimInstance vimInstance) {
+    return Iterables.transform(
+        pageImageDetails(vimInstance, null),
+        new Function<ImageDetails, NFVImage>() {
+          @Override
+          public NFVImage apply(ImageDetails imageDetails) {
+            return toNFVImage(imageDetails);
+          }
+        });
+  }
+
+  /**
+   * Returns the first image with the given name, or null if there is none. The listing stops at
+   * the page which contains it.
+   */
+  public NFVImage findImage(VimInstance vimInstance, String name) throws VimDriverException {
+    log.debug("Finding Image by name: " + name + " on VimInstance: " + vimInstance.getName());
+    try {
+      for (NFVImage image : iterateImages(vimInstance)) {
+        if (name.equals(image.getName())) {
+          log.info("Found Image by name: " + name + " -> Image: " + image);
+          return image;
+        }
+      }
+      return null;
+    } catch (Exception e) {
+      log.error(e.getMessage(), e);
+      throw new VimDriverException(e.getMessage());
+    }
+  }
+
+  /**
+   * Lists the images of the VimInstance in detail through an {@link ImagePager},
+   * image-list-page-size images per request. The ImageApi is resolved when the iteration starts.
+   *
+   * @param changedSince only lists images changed since then, or null to list all images
+   */
+  private Iterable<ImageDetails> pageImageDetails(
+      final VimInstance vimInstance, final Date changedSince) {
+    return new Iterable<ImageDetails>() {
+      @Override
+      public Iterator<ImageDetails> iterator() {
+        ImageApi imageApi = apiRegistry.getGlanceApi(vimInstance).getImageApi(getZone(vimInstance));
+        return new ImagePager(imageApi, imageListPageSize, changedSince).iterator();
+      }
+    };
+  }
+
   @Override
   public List<Server> listServer(VimInstance vimInstance) throws VimDriverException {
+    return listServer(vimInstance, true);
+  }
+
+  /**
+   * Lists the VMs of the tenant. Images and flavors are resolved from one listing of each catalog
+   * per call. If resolveImagesAndFlavors is false, they are not resolved at all and only carry
+   * their ExtId.
+   */
+  public List<Server> listServer(VimInstance vimInstance, boolean resolveImagesAndFlavors)
+      throws VimDriverException {
     log.debug("Listing all VMs on VimInstance with name: " + vimInstance.getName());
     try {
       List<Server> servers = new ArrayList<Server>();
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
-      ServerApi serverApi = novaApi.getServerApi(getZone(vimInstance));
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
+      String zone = getZone(vimInstance);
+      ServerApi serverApi = novaApi.getServerApi(zone);
       String tenantId = getTenantId(vimInstance);
-      List<String> allFloatingIps = listFloatingIps(vimInstance, false);
+      FloatingIpIndex allFloatingIps = getFloatingIpIndex(vimInstance);
+      Map<String, NFVImage> images = null;
+      FlavorCatalog flavors = null;
+      if (resolveImagesAndFlavors) {
+        images = new HashMap<>();
+        for (org.jclouds.openstack.nova.v2_0.domain.Image jcloudsImage :
+            novaApi.getImageApi(zone).listInDetail().concat()) {
+          images.put(jcloudsImage.getId(), toNFVImage(jcloudsImage));
+        }
+        flavors = flavorCache.get(vimInstance);
+      }
       for (org.jclouds.openstack.nova.v2_0.domain.Server jcloudsServer :
           serverApi.listInDetail().concat()) {
         if (jcloudsServer.getTenantId().equals(tenantId)) {
@@ -593,13 +1186,13 @@ public class OpenstackClient extends VimDriver {
           server.setUpdated(jcloudsServer.getUpdated());
           Resource image = jcloudsServer.getImage();
           if (image != null) {
-            server.setImage(getImageById(vimInstance, image.getId()));
+            server.setImage(resolveImage(vimInstance, images, image.getId()));
           } else {
             log.warn("The image this server is using was deleted");
           }
           Resource flavor = jcloudsServer.getFlavor();
           if (flavor != null) {
-            server.setFlavor(getFlavorById(vimInstance, flavor.getId()));
+            server.setFlavor(resolveFlavor(vimInstance, flavors, flavor.getId()));
           } else {
             log.warn("The flavor this server is using was deleted");
           }
@@ -619,20 +1212,36 @@ public class OpenstackClient extends VimDriver {
     }
   }
 
+  private NFVImage resolveImage(VimInstance vimInstance, Map<String, NFVImage> images, String extId)
+      throws VimDriverException {
+    if (images == null) {
+      NFVImage image = new NFVImage();
+      image.setExtId(extId);
+      return image;
+    }
+    NFVImage image = images.get(extId);
+    // not listed anymore, e.g. deleted or not visible to the tenant
+    return image != null ? image : getImageById(vimInstance, extId);
+  }
+
+  private DeploymentFlavour resolveFlavor(
+      VimInstance vimInstance, FlavorCatalog flavors, String extId) throws VimDriverException {
+    if (flavors == null) {
+      DeploymentFlavour flavor = new DeploymentFlavour();
+      flavor.setExtId(extId);
+      return flavor;
+    }
+    DeploymentFlavour flavor = flavors.getById(extId);
+    // not cached yet, e.g. added since the catalog was loaded
+    return flavor != null ? flavor : getFlavorById(vimInstance, extId);
+  }
+
   private Server getServerById(VimInstance vimInstance, String extId) throws VimDriverException {
     log.debug("Finding VM by ID: " + extId + " on VimInstance with name: " + vimInstance.getName());
-    List<String> allFloatingIps = listFloatingIps(vimInstance, false);
+    FloatingIpIndex allFloatingIps = getFloatingIpIndex(vimInstance);
 
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       ServerApi serverApi = novaApi.getServerApi(getZone(vimInstance));
       org.jclouds.openstack.nova.v2_0.domain.Server jcloudsServer = serverApi.get(extId);
       log.debug(
@@ -675,7 +1284,7 @@ public class OpenstackClient extends VimDriver {
       }
       Resource flavor = jcloudsServer.getFlavor();
       if (flavor != null) {
-        server.setFlavor(getFlavorById(vimInstance, flavor.getId()));
+        server.setFlavor(resolveFlavor(vimInstance, flavorCache.get(vimInstance), flavor.getId()));
       } else {
         log.warn("The flavor this server is using was deleted");
       }
@@ -711,100 +1320,646 @@ public class OpenstackClient extends VimDriver {
         addImage(
             vimInstance,
             image.getName(),
-            new ByteArrayInputStream(imageFile),
+            new ByteArrayPayload(imageFile),
+            Hashing.md5().hashBytes(imageFile).toString(),
             image.getDiskFormat(),
             image.getContainerFormat(),
             image.getMinDiskSpace(),
             image.getMinRam(),
             image.isPublic());
-    image.setName(addedImage.getName());
-    image.setExtId(addedImage.getExtId());
-    image.setCreated(addedImage.getCreated());
-    image.setUpdated(addedImage.getUpdated());
-    image.setMinDiskSpace(addedImage.getMinDiskSpace());
-    image.setMinRam(addedImage.getMinRam());
-    image.setIsPublic(addedImage.isPublic());
-    image.setDiskFormat(addedImage.getDiskFormat());
-    image.setContainerFormat(addedImage.getContainerFormat());
+    copyInto(addedImage, image);
     return image;
   }
 
+  /**
+   * Adds an image whose content is read from the stream while it is uploaded, so that it never has
+   * to fit into memory. The stream is not closed.
+   *
+   * @param contentLength the size of the image in bytes, or -1 if it is unknown
+   */
+  public NFVImage addImage(
+      VimInstance vimInstance, NFVImage image, InputStream imageStream, long contentLength)
+      throws VimDriverException {
+    return addImage(vimInstance, image, imageStream, contentLength, null);
+  }
+
+  /**
+   * Same as {@link #addImage(VimInstance, NFVImage, InputStream, long)}, but if an image with the
+   * given MD5 checksum and the same formats already exists, it is returned and the stream is not
+   * read at all.
+   *
+   * @param checksum the MD5 checksum of the image content as hex string, or null if it is unknown
+   */
+  public NFVImage addImage(
+      VimInstance vimInstance,
+      NFVImage image,
+      InputStream imageStream,
+      long contentLength,
+      String checksum)
+      throws VimDriverException {
+    NFVImage addedImage;
+    ImageDetails existingImage =
+        findDuplicateImage(
+            vimInstance,
+            checksum,
+            image.getDiskFormat(),
+            image.getContainerFormat(),
+            image.isPublic());
+    if (existingImage != null) {
+      addedImage = toNFVImage(existingImage);
+      log.info(
+          "Not uploading Image with name: "
+              + image.getName()
+              + " to VimInstance with name: "
+              + vimInstance.getName()
+              + ", the same content exists already -> Image: "
+              + addedImage);
+    } else {
+      addedImage = toNFVImage(uploadSpooled(vimInstance, image, imageStream, contentLength));
+      log.info(
+          "Added Image with name: "
+              + image.getName()
+              + " to VimInstance with name: "
+              + vimInstance.getName()
+              + " -> Image: "
+              + addedImage);
+    }
+    copyInto(addedImage, image);
+    return image;
+  }
+
+  /**
+   * Wraps the stream into a payload which jclouds sends while reading it. With a known content
+   * length the request is streamed with a fixed length, otherwise chunked.
+   */
+  private Payload streamingPayload(InputStream imageStream, long contentLength) {
+    Payload payload =
+        new InputStreamPayload(
+            new BufferedInputStream(imageStream, UPLOAD_BUFFER_SIZE) {
+              @Override
+              public void close() {
+                // the caller owns the stream
+              }
+            });
+    if (contentLength >= 0) {
+      payload.getContentMetadata().setContentLength(contentLength);
+    }
+    payload.getContentMetadata().setContentType("application/octet-stream");
+    return payload;
+  }
+
+  /**
+   * Uploads the payload as new image, unless deduplication is enabled and the tenant owns an image
+   * with the given checksum, formats and visibility already. Then that image is returned instead.
+   */
   private NFVImage addImage(
       VimInstance vimInstance,
       String name,
-      InputStream payload,
+      Payload payload,
+      String checksum,
+      String diskFormat,
+      String containerFormat,
+      long minDisk,
+      long minRam,
+      boolean isPublic)
+      throws VimDriverException {
+    ImageDetails existingImage =
+        findDuplicateImage(vimInstance, checksum, diskFormat, containerFormat, isPublic);
+    if (existingImage != null) {
+      NFVImage image = toNFVImage(existingImage);
+      log.info(
+          "Not uploading Image with name: "
+              + name
+              + " to VimInstance with name: "
+              + vimInstance.getName()
+              + ", the same content exists already -> Image: "
+              + image);
+      return image;
+    }
+    ImageDetails imageDetails =
+        uploadImage(
+            vimInstance, name, payload, diskFormat, containerFormat, minDisk, minRam, isPublic);
+    NFVImage image = toNFVImage(imageDetails);
+    log.info(
+        "Added Image with name: "
+            + name
+            + " to VimInstance with name: "
+            + vimInstance.getName()
+            + " -> Image: "
+            + image);
+    return image;
+  }
+
+  /**
+   * Uploads the payload as new image. If the payload can be sent again, failures of the connection
+   * or of the server are retried.
+   */
+  private ImageDetails uploadImage(
+      VimInstance vimInstance,
+      String name,
+      Payload payload,
       String diskFormat,
       String containerFormat,
       long minDisk,
       long minRam,
       boolean isPublic)
       throws VimDriverException {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return createImage(
+            vimInstance, name, payload, diskFormat, containerFormat, minDisk, minRam, isPublic);
+      } catch (Exception e) {
+        if (!payload.isRepeatable() || !retryUpload(vimInstance, name, attempt, e)) {
+          log.error(e.getMessage(), e);
+          throw new VimDriverException(e.getMessage());
+        }
+      }
+    }
+  }
+
+  private ImageDetails createImage(
+      VimInstance vimInstance,
+      String name,
+      Payload payload,
+      String diskFormat,
+      String containerFormat,
+      long minDisk,
+      long minRam,
+      boolean isPublic)
+      throws Exception {
     log.debug(
         "Adding Image (with image file) with name: "
             + name
             + " to VimInstance with name: "
             + vimInstance.getName());
+    GlanceApi glanceApi = apiRegistry.getGlanceApi(vimInstance);
+    ImageApi imageApi = glanceApi.getImageApi(getZone(vimInstance));
+    CreateImageOptions createImageOptions = new CreateImageOptions();
+    createImageOptions.minDisk(minDisk);
+    createImageOptions.minRam(minRam);
+    createImageOptions.isPublic(isPublic);
+    createImageOptions.diskFormat(DiskFormat.valueOf(diskFormat));
+    createImageOptions.containerFormat(ContainerFormat.valueOf(containerFormat));
+    // every attempt has an ID of its own, so that what a failed one left behind can be found
+    String imageId = UUID.randomUUID().toString();
+    createImageOptions.id(imageId);
+    log.debug("Initialized jclouds Image: " + createImageOptions);
+    ImageDetails imageDetails;
     try {
-      GlanceApi glanceApi =
-          ContextBuilder.newBuilder("openstack-glance")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(GlanceApi.class);
-      ImageApi imageApi = glanceApi.getImageApi(getZone(vimInstance));
-      CreateImageOptions createImageOptions = new CreateImageOptions();
-      createImageOptions.minDisk(minDisk);
-      createImageOptions.minRam(minRam);
-      createImageOptions.isPublic(isPublic);
-      createImageOptions.diskFormat(DiskFormat.valueOf(diskFormat));
-      createImageOptions.containerFormat(ContainerFormat.valueOf(containerFormat));
-      log.debug("Initialized jclouds Image: " + createImageOptions);
-      Payload jcloudsPayload = new InputStreamPayload(payload);
+      imageDetails = imageApi.create(name, payload, new CreateImageOptions[] {createImageOptions});
+    } catch (Exception e) {
+      imageDetails = recoverFailedCreate(vimInstance, imageApi, name, imageId, e);
+    }
+    log.debug(
+        "Added jclouds Image: "
+            + imageDetails
+            + " to VimInstance with name: "
+            + vimInstance.getName());
+    ImageChecksumIndex index = imageIndexes.getIfPresent(VimInstanceKey.of(vimInstance));
+    if (index != null) {
+      index.add(imageDetails);
+    }
+    return imageDetails;
+  }
+
+  /**
+   * Cleans up after a failed create, since creating an image is not idempotent. If the image was
+   * stored completely, e.g. only reading the response failed, it is returned instead of sending it
+   * again. An image left queued, saving or killed is deleted and the failure is thrown again, so
+   * that a retry does not add a second image with the same name. If the image can not be looked up
+   * or deleted the failure is thrown as not to be retried.
+   */
+  private ImageDetails recoverFailedCreate(
+      VimInstance vimInstance, ImageApi imageApi, String name, String imageId, Exception failure)
+      throws Exception {
+    ImageDetails leftover;
+    try {
+      leftover = imageApi.get(imageId);
+      if (leftover != null && leftover.getStatus() != Image.Status.ACTIVE) {
+        log.debug(
+            "Deleting Image with ID: "
+                + imageId
+                + " in status "
+                + leftover.getStatus()
+                + " left behind by the failed upload of Image with name: "
+                + name);
+        imageApi.delete(imageId);
+      }
+    } catch (Exception e) {
+      log.error(
+          "Not able to clean up after the failed upload of Image with name: "
+              + name
+              + " to VimInstance with name: "
+              + vimInstance.getName()
+              + ", not retrying it",
+          e);
+      throw new VimDriverException(failure.getMessage());
+    }
+    if (leftover == null || leftover.getStatus() != Image.Status.ACTIVE) {
+      throw failure;
+    }
+    log.warn(
+        "Upload of Image with name: "
+            + name
+            + " to VimInstance with name: "
+            + vimInstance.getName()
+            + " failed ("
+            + failure.getMessage()
+            + "), but the Image was stored completely -> Image: "
+            + leftover);
+    return leftover;
+  }
+
+  /**
+   * Sends the stream as new image, once. The progress, throughput and remaining time of the upload
+   * are logged every image-upload-progress-interval seconds.
+   */
+  private ImageDetails uploadStream(
+      final VimInstance vimInstance,
+      final NFVImage image,
+      InputStream imageStream,
+      final long contentLength)
+      throws Exception {
+    final ProgressInputStream progress = new ProgressInputStream(imageStream);
+    ScheduledFuture<?> report =
+        scheduler.scheduleAtFixedRate(
+            new Runnable() {
+              @Override
+              public void run() {
+                log.info(
+                    "Uploading Image with name: "
+                        + image.getName()
+                        + " to VimInstance with name: "
+                        + vimInstance.getName()
+                        + " -> "
+                        + progress.getBytesRead() / (1024 * 1024)
+                        + (contentLength >= 0
+                            ? " of " + contentLength / (1024 * 1024) + " MiB"
+                            : " MiB")
+                        + ", "
+                        + progress.getThroughput() / 1024
+                        + " KiB/s, "
+                        + (contentLength >= 0
+                            ? progress.getRemainingSeconds(contentLength) + " seconds remaining"
+                            : "remaining time unknown"));
+              }
+            },
+            uploadProgressInterval,
+            uploadProgressInterval,
+            TimeUnit.SECONDS);
+    try {
+      return createImage(
+          vimInstance,
+          image.getName(),
+          streamingPayload(progress, contentLength),
+          image.getDiskFormat(),
+          image.getContainerFormat(),
+          image.getMinDiskSpace(),
+          image.getMinRam(),
+          image.isPublic());
+    } finally {
+      report.cancel(false);
+    }
+  }
+
+  /**
+   * Uploads the stream as new image. With image-upload-spool enabled everything read is written to
+   * a local spool file meanwhile, and a failed upload is retried from that file, since the stream
+   * can not be read again. Glance v1 can not continue an interrupted upload, so every retry sends
+   * the image from its start.
+   */
+  private ImageDetails uploadSpooled(
+      VimInstance vimInstance, NFVImage image, InputStream imageStream, long contentLength)
+      throws VimDriverException {
+    if (!uploadSpool || uploadAttempts <= 1) {
       try {
-        ByteArrayOutputStream bufferedPayload = new ByteArrayOutputStream();
-        int read = 0;
-        byte[] bytes = new byte[1024];
-        while ((read = payload.read(bytes)) != -1) {
-          bufferedPayload.write(bytes, 0, read);
+        return uploadStream(vimInstance, image, imageStream, contentLength);
+      } catch (Exception e) {
+        log.error(e.getMessage(), e);
+        throw new VimDriverException(e.getMessage());
+      }
+    }
+    File spool = null;
+    try {
+      spool = File.createTempFile("openstack-plugin-image-", ".spool");
+      try (OutputStream spoolStream =
+          new BufferedOutputStream(new FileOutputStream(spool), UPLOAD_BUFFER_SIZE)) {
+        SpoolingInputStream spoolingStream = new SpoolingInputStream(imageStream, spoolStream);
+        try {
+          return uploadStream(vimInstance, image, spoolingStream, contentLength);
+        } catch (Exception e) {
+          if (!retryUpload(vimInstance, image.getName(), 1, e)) {
+            log.error(e.getMessage(), e);
+            throw new VimDriverException(e.getMessage());
+          }
+          spoolingStream.drain();
         }
-        bufferedPayload.flush();
-        jcloudsPayload = new ByteArrayPayload(bufferedPayload.toByteArray());
+      }
+      return uploadFile(vimInstance, image, spool, 2);
+    } catch (IOException e) {
+      log.error(e.getMessage(), e);
+      throw new VimDriverException(e.getMessage());
+    } finally {
+      if (spool != null && !spool.delete()) {
+        log.warn("Not able to delete the spool file " + spool);
+      }
+    }
+  }
+
+  /**
+   * Uploads the file as new image, retrying failed attempts from the start of the file. While
+   * jclouds sends the file, its MD5 checksum is computed from the same bytes and afterwards
+   * compared with the checksum Glance stored for the image. If they differ the image is deleted
+   * again.
+   *
+   * @param firstAttempt the number of the first attempt, greater than 1 if the content was sent
+   *     from elsewhere before
+   */
+  private ImageDetails uploadFile(
+      VimInstance vimInstance, NFVImage image, File imageFile, int firstAttempt)
+      throws VimDriverException {
+    for (int attempt = firstAttempt; ; attempt++) {
+      ImageDetails imageDetails;
+      String checksum;
+      try (FileChannel channel = FileChannel.open(imageFile.toPath(), StandardOpenOption.READ)) {
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        InputStream imageStream = new DigestInputStream(Channels.newInputStream(channel), md5);
+        try {
+          imageDetails = uploadStream(vimInstance, image, imageStream, channel.size());
+        } catch (Exception e) {
+          if (!retryUpload(vimInstance, image.getName(), attempt, e)) {
+            log.error(e.getMessage(), e);
+            throw new VimDriverException(e.getMessage());
+          }
+          continue;
+        }
+        // only reads anything if the upload stopped before the end of the file
+        ByteStreams.copy(imageStream, ByteStreams.nullOutputStream());
+        checksum = BaseEncoding.base16().lowerCase().encode(md5.digest());
+      } catch (IOException | NoSuchAlgorithmException e) {
+        log.error(e.getMessage(), e);
+        throw new VimDriverException(e.getMessage());
+      }
+      if (imageDetails.getChecksum().isPresent()
+          && !imageDetails.getChecksum().get().equalsIgnoreCase(checksum)) {
+        log.error(
+            "Checksum of Image with name: "
+                + image.getName()
+                + " on VimInstance with name: "
+                + vimInstance.getName()
+                + " is "
+                + imageDetails.getChecksum().get()
+                + " but the file "
+                + imageFile
+                + " has "
+                + checksum
+                + ". Deleting the Image");
+        NFVImage corruptedImage = new NFVImage();
+        corruptedImage.setName(imageDetails.getName());
+        corruptedImage.setExtId(imageDetails.getId());
+        deleteImage(vimInstance, corruptedImage);
+        throw new VimDriverException(
+            "Checksum mismatch after uploading Image with name: " + image.getName());
+      }
+      log.debug("Uploaded file " + imageFile + " with MD5 checksum " + checksum);
+      return imageDetails;
+    }
+  }
+
+  /**
+   * Decides whether a failed upload is sent again, and waits before if so. Only failures of the
+   * connection or of the server are retried, up to image-upload-attempts attempts in total. The
+   * first retry is immediate, every further one waits image-upload-retry-delay seconds longer.
+   */
+  private boolean retryUpload(VimInstance vimInstance, String name, int attempt, Exception failure)
+      throws VimDriverException {
+    if (attempt >= uploadAttempts || !isTransientFailure(failure)) {
+      return false;
+    }
+    long delay = uploadRetryDelay * (attempt - 1);
+    log.warn(
+        "Upload of Image with name: "
+            + name
+            + " to VimInstance with name: "
+            + vimInstance.getName()
+            + " failed ("
+            + attempt
+            + "/"
+            + uploadAttempts
+            + "): "
+            + failure.getMessage()
+            + ". Retrying in "
+            + delay / 1000
+            + " seconds");
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new VimDriverException("Interrupted while retrying the upload of Image: " + name);
+    }
+    return true;
+  }
+
+  private boolean isTransientFailure(Throwable failure) {
+    for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+      if (cause instanceof IOException) {
+        return true;
+      }
+      if (cause instanceof HttpResponseException) {
+        HttpResponse response = ((HttpResponseException) cause).getResponse();
+        if (response != null && response.getStatusCode() >= 500) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds an image from a local file. The file is read once through its channel: while jclouds
+   * sends it, the MD5 checksum is computed from the same bytes and afterwards compared with the
+   * checksum Glance stored for the image. If they differ the image is deleted again. A failed
+   * upload is retried from the start of the file.
+   *
+   * <p>If deduplication is enabled the file is hashed locally before, and an existing image of the
+   * tenant with the same checksum, formats and visibility is returned instead of uploading the file.
+   */
+  public NFVImage addImage(VimInstance vimInstance, NFVImage image, File imageFile)
+      throws VimDriverException {
+    if (imageDeduplication) {
+      String fileChecksum;
+      try {
+        fileChecksum = Files.hash(imageFile, Hashing.md5()).toString();
       } catch (IOException e) {
         log.error(e.getMessage(), e);
         throw new VimDriverException(e.getMessage());
       }
-      ImageDetails imageDetails =
-          imageApi.create(name, jcloudsPayload, new CreateImageOptions[] {createImageOptions});
-      log.debug(
-          "Added jclouds Image: "
-              + imageDetails
-              + " to VimInstance with name: "
-              + vimInstance.getName());
-      NFVImage image = new NFVImage();
-      image.setName(imageDetails.getName());
-      image.setExtId(imageDetails.getId());
-      image.setCreated(imageDetails.getCreatedAt());
-      image.setUpdated(imageDetails.getUpdatedAt());
-      image.setMinDiskSpace(imageDetails.getMinDisk());
-      image.setMinRam(imageDetails.getMinRam());
-      image.setIsPublic(imageDetails.isPublic());
-      image.setDiskFormat(imageDetails.getDiskFormat().toString().toUpperCase());
-      image.setContainerFormat(imageDetails.getContainerFormat().toString().toUpperCase());
-      log.info(
-          "Added Image with name: "
-              + name
-              + " to VimInstance with name: "
-              + vimInstance.getName()
-              + " -> Image: "
-              + image);
-      return image;
-    } catch (Exception e) {
+      ImageDetails existingImage =
+          findDuplicateImage(
+              vimInstance,
+              fileChecksum,
+              image.getDiskFormat(),
+              image.getContainerFormat(),
+              image.isPublic());
+      if (existingImage != null) {
+        NFVImage addedImage = toNFVImage(existingImage);
+        log.info(
+            "Not uploading file "
+                + imageFile
+                + " to VimInstance with name: "
+                + vimInstance.getName()
+                + ", the same content exists already -> Image: "
+                + addedImage);
+        copyInto(addedImage, image);
+        return image;
+      }
+    }
+    NFVImage addedImage = toNFVImage(uploadFile(vimInstance, image, imageFile, 1));
+    log.info(
+        "Added Image with name: "
+            + image.getName()
+            + " from file "
+            + imageFile
+            + " to VimInstance with name: "
+            + vimInstance.getName()
+            + " -> Image: "
+            + addedImage);
+    copyInto(addedImage, image);
+    return image;
+  }
+
+  /**
+   * Adds the same image to several VimInstances at once, e.g. to onboard a VNF package on all
+   * sites. The stream is read only once and its chunks are shared by one upload per VimInstance.
+   * Each upload has a bounded queue of image-distribution-queued-chunks chunks, so the memory used
+   * is bounded and the distribution takes as long as the slowest site. The progress of every site
+   * is logged while the stream is read.
+   *
+   * <p>The returned futures are in the order of the VimInstances and fail independently. This
+   * method returns once the stream was read completely, the last uploads may still be running. The
+   * stream is not closed.
+   *
+   * @param contentLength the size of the image in bytes, or -1 if it is unknown
+   * @param checksum the MD5 checksum of the image content, to skip the VimInstances which have the
+   *     same image already, or null if it is unknown
+   */
+  public List<ListenableFuture<NFVImage>> distributeImage(
+      final List<VimInstance> vimInstances,
+      final NFVImage image,
+      InputStream imageStream,
+      final long contentLength,
+      final String checksum)
+      throws VimDriverException {
+    log.info(
+        "Distributing Image with name: "
+            + image.getName()
+            + " to "
+            + vimInstances.size()
+            + " VimInstances");
+    final StreamFanOut fanOut =
+        new StreamFanOut(vimInstances.size(), UPLOAD_BUFFER_SIZE, distributionQueuedChunks);
+    // every upload needs its own thread, or the reading would wait for the ones not started
+    ListeningExecutorService uploaders =
+        MoreExecutors.listeningDecorator(
+            Executors.newFixedThreadPool(
+                Math.max(1, vimInstances.size()),
+                new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("openstack-plugin-distribution-%d")
+                    .build()));
+    List<ListenableFuture<NFVImage>> results = new ArrayList<>();
+    for (int i = 0; i < vimInstances.size(); i++) {
+      final int target = i;
+      final VimInstance vimInstance = vimInstances.get(i);
+      ListenableFuture<NFVImage> result =
+          uploaders.submit(
+              new Callable<NFVImage>() {
+                @Override
+                public NFVImage call() throws VimDriverException {
+                  try {
+                    return addImage(
+                        vimInstance,
+                        image.getName(),
+                        streamingPayload(fanOut.getStream(target), contentLength),
+                        checksum,
+                        image.getDiskFormat(),
+                        image.getContainerFormat(),
+                        image.getMinDiskSpace(),
+                        image.getMinRam(),
+                        image.isPublic());
+                  } finally {
+                    fanOut.finish(target);
+                  }
+                }
+              });
+      Futures.addCallback(
+          result,
+          new FutureCallback<NFVImage>() {
+            @Override
+            public void onSuccess(NFVImage addedImage) {
+              log.info(
+                  "Distributed Image with name: "
+                      + image.getName()
+                      + " to VimInstance with name: "
+                      + vimInstance.getName()
+                      + " -> Image: "
+                      + addedImage);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              log.error(
+                  "Not able to distribute Image with name: "
+                      + image.getName()
+                      + " to VimInstance with name: "
+                      + vimInstance.getName()
+                      + ": "
+                      + t.getMessage());
+            }
+          });
+      results.add(result);
+    }
+    uploaders.shutdown();
+    ScheduledFuture<?> progress =
+        scheduler.scheduleAtFixedRate(
+            new Runnable() {
+              @Override
+              public void run() {
+                logDistributionProgress(image, vimInstances, fanOut, contentLength);
+              }
+            },
+            distributionProgressInterval,
+            distributionProgressInterval,
+            TimeUnit.SECONDS);
+    try {
+      fanOut.pump(imageStream);
+    } catch (IOException e) {
+      // the uploads fail with it as well
       log.error(e.getMessage(), e);
-      throw new VimDriverException(e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      uploaders.shutdownNow();
+      throw new VimDriverException(
+          "Interrupted while distributing Image with name: " + image.getName());
+    } finally {
+      progress.cancel(false);
     }
+    logDistributionProgress(image, vimInstances, fanOut, contentLength);
+    return results;
+  }
+
+  private void logDistributionProgress(
+      NFVImage image, List<VimInstance> vimInstances, StreamFanOut fanOut, long contentLength) {
+    StringBuilder progress = new StringBuilder();
+    for (int i = 0; i < vimInstances.size(); i++) {
+      long bytesRead = fanOut.getBytesRead(i);
+      progress.append(i == 0 ? "" : ", ").append(vimInstances.get(i).getName()).append(": ");
+      progress.append(bytesRead / (1024 * 1024)).append(" MiB");
+      if (contentLength > 0) {
+        progress.append(" (").append(bytesRead * 100 / contentLength).append("%)");
+      }
+    }
+    log.info("Distributing Image with name: " + image.getName() + " -> " + progress);
   }
 
   @Override
@@ -820,18 +1975,60 @@ public class OpenstackClient extends VimDriver {
             image.getMinDiskSpace(),
             image.getMinRam(),
             image.isPublic());
-    image.setName(addedImage.getName());
-    image.setExtId(addedImage.getExtId());
-    image.setCreated(addedImage.getCreated());
-    image.setUpdated(addedImage.getUpdated());
-    image.setMinDiskSpace(addedImage.getMinDiskSpace());
-    image.setMinRam(addedImage.getMinRam());
-    image.setIsPublic(addedImage.isPublic());
-    image.setDiskFormat(addedImage.getDiskFormat());
-    image.setContainerFormat(addedImage.getContainerFormat());
+    copyInto(addedImage, image);
     return image;
   }
 
+  /**
+   * Adds an image which Glance copies from the URL by itself, like {@link #addImage(VimInstance,
+   * NFVImage, String)}, and returns a future which completes with the image once Glance finished
+   * copying it. The future fails if the import failed or took longer than image-import-timeout
+   * seconds.
+   */
+  public ListenableFuture<NFVImage> addImageAsync(
+      VimInstance vimInstance, NFVImage image, String imageUrl) throws VimDriverException {
+    NFVImage reservedImage =
+        addImage(
+            vimInstance,
+            image.getName(),
+            imageUrl,
+            image.getDiskFormat(),
+            image.getContainerFormat(),
+            image.getMinDiskSpace(),
+            image.getMinRam(),
+            image.isPublic());
+    return awaitImageImport(vimInstance, reservedImage.getExtId());
+  }
+
+  /**
+   * Returns a future which completes with the image once Glance finished importing it. All pending
+   * imports of a VimInstance are checked together by one listing per tick, and the final image is
+   * kept for image-import-cache-ttl seconds.
+   */
+  public ListenableFuture<NFVImage> awaitImageImport(final VimInstance vimInstance, String extId) {
+    return Futures.transform(
+        imageImportTracker.track(vimInstance, extId, importTimeout),
+        new Function<ImageDetails, NFVImage>() {
+          @Override
+          public NFVImage apply(ImageDetails imageDetails) {
+            // the checksum of the image is known now
+            ImageChecksumIndex index = imageIndexes.getIfPresent(VimInstanceKey.of(vimInstance));
+            if (index != null) {
+              index.add(imageDetails);
+            }
+            NFVImage image = toNFVImage(imageDetails);
+            log.info(
+                "Imported Image with ExtId: "
+                    + imageDetails.getId()
+                    + " on VimInstance with name: "
+                    + vimInstance.getName()
+                    + " -> Image: "
+                    + image);
+            return image;
+          }
+        });
+  }
+
   private NFVImage addImage(
       VimInstance vimInstance,
       String name,
@@ -848,15 +2045,7 @@ public class OpenstackClient extends VimDriver {
             + " to VimInstance with name: "
             + vimInstance.getName());
     try {
-      GlanceApi glanceApi =
-          ContextBuilder.newBuilder("openstack-glance")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(GlanceApi.class);
+      GlanceApi glanceApi = apiRegistry.getGlanceApi(vimInstance);
       ImageApi imageApi = glanceApi.getImageApi(getZone(vimInstance));
       CreateImageOptions createImageOptions = new CreateImageOptions();
       createImageOptions.minDisk(minDisk);
@@ -908,17 +2097,13 @@ public class OpenstackClient extends VimDriver {
             + ") from VimInstance with name: "
             + vimInstance.getName());
     try {
-      GlanceApi glanceApi =
-          ContextBuilder.newBuilder("openstack-glance")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(GlanceApi.class);
+      GlanceApi glanceApi = apiRegistry.getGlanceApi(vimInstance);
       ImageApi imageApi = glanceApi.getImageApi(getZone(vimInstance));
       boolean isDeleted = imageApi.delete(image.getExtId());
+      ImageChecksumIndex index = imageIndexes.getIfPresent(VimInstanceKey.of(vimInstance));
+      if (index != null) {
+        index.remove(image.getExtId());
+      }
       log.info(
           "Deleted Image with name: "
               + image.getName()
@@ -945,15 +2130,7 @@ public class OpenstackClient extends VimDriver {
             image.getMinDiskSpace(),
             image.getMinRam(),
             image.isPublic());
-    image.setName(updatedImage.getName());
-    image.setExtId(updatedImage.getExtId());
-    image.setCreated(updatedImage.getCreated());
-    image.setUpdated(updatedImage.getUpdated());
-    image.setMinDiskSpace(updatedImage.getMinDiskSpace());
-    image.setMinRam(updatedImage.getMinRam());
-    image.setIsPublic(updatedImage.isPublic());
-    image.setDiskFormat(updatedImage.getDiskFormat());
-    image.setContainerFormat(updatedImage.getContainerFormat());
+    copyInto(updatedImage, image);
     return image;
   }
 
@@ -975,15 +2152,7 @@ public class OpenstackClient extends VimDriver {
             + ") on VimInstance with name: "
             + vimInstance.getName());
     try {
-      GlanceApi glanceApi =
-          ContextBuilder.newBuilder("openstack-glance")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(GlanceApi.class);
+      GlanceApi glanceApi = apiRegistry.getGlanceApi(vimInstance);
       ImageApi imageApi = glanceApi.getImageApi(getZone(vimInstance));
       UpdateImageOptions updateImageOptions = new UpdateImageOptions();
       updateImageOptions.name(name);
@@ -1023,90 +2192,28 @@ public class OpenstackClient extends VimDriver {
   public NFVImage copyImage(VimInstance vimInstance, NFVImage image, byte[] imageFile)
       throws VimDriverException {
     NFVImage copiedImage =
-        copyImage(
+        addImage(
             vimInstance,
             image.getName(),
-            new ByteArrayInputStream(imageFile),
+            new ByteArrayPayload(imageFile),
+            Hashing.md5().hashBytes(imageFile).toString(),
             image.getDiskFormat(),
             image.getContainerFormat(),
             image.getMinDiskSpace(),
             image.getMinRam(),
             image.isPublic());
-    image.setName(copiedImage.getName());
-    image.setExtId(copiedImage.getExtId());
-    image.setCreated(copiedImage.getCreated());
-    image.setUpdated(copiedImage.getUpdated());
-    image.setMinDiskSpace(copiedImage.getMinDiskSpace());
-    image.setMinRam(copiedImage.getMinRam());
-    image.setIsPublic(copiedImage.isPublic());
-    image.setDiskFormat(copiedImage.getDiskFormat());
-    image.setContainerFormat(copiedImage.getContainerFormat());
+    copyInto(copiedImage, image);
     return image;
   }
 
-  private NFVImage copyImage(
-      VimInstance vimInstance,
-      String name,
-      InputStream inputStream,
-      String diskFormat,
-      String containerFormat,
-      long minDisk,
-      long minRam,
-      boolean isPublic)
-      throws VimDriverException {
-    try {
-      GlanceApi glanceApi =
-          ContextBuilder.newBuilder("openstack-glance")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(GlanceApi.class);
-      ImageApi imageApi = glanceApi.getImageApi(getZone(vimInstance));
-      NFVImage image =
-          addImage(
-              vimInstance,
-              name,
-              inputStream,
-              diskFormat,
-              containerFormat,
-              minDisk,
-              minRam,
-              isPublic);
-      return image;
-    } catch (Exception e) {
-      log.error(e.getMessage(), e);
-      throw new VimDriverException(e.getMessage());
-    }
-  }
-
   private NFVImage getImageById(VimInstance vimInstance, String extId) throws VimDriverException {
     log.debug("Finding Image by ExtId: " + extId);
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       org.jclouds.openstack.nova.v2_0.features.ImageApi imageApi =
           novaApi.getImageApi(getZone(vimInstance));
       org.jclouds.openstack.nova.v2_0.domain.Image jcloudsImage = imageApi.get(extId);
-      NFVImage image = new NFVImage();
-      image.setExtId(jcloudsImage.getId());
-      image.setName(jcloudsImage.getName());
-      image.setCreated(jcloudsImage.getCreated());
-      image.setUpdated(jcloudsImage.getUpdated());
-      image.setMinDiskSpace(jcloudsImage.getMinDisk());
-      image.setMinRam(jcloudsImage.getMinRam());
-      image.setIsPublic(false);
-      image.setContainerFormat("not provided");
-      image.setDiskFormat("not provided");
+      NFVImage image = toNFVImage(jcloudsImage);
       log.info("Found Image by ExtId: " + extId + " -> Image: " + image);
       return image;
     } catch (NullPointerException e) {
@@ -1121,6 +2228,100 @@ public class OpenstackClient extends VimDriver {
     }
   }
 
+  private NFVImage toNFVImage(org.jclouds.openstack.nova.v2_0.domain.Image jcloudsImage) {
+    NFVImage image = new NFVImage();
+    image.setExtId(jcloudsImage.getId());
+    image.setName(jcloudsImage.getName());
+    image.setCreated(jcloudsImage.getCreated());
+    image.setUpdated(jcloudsImage.getUpdated());
+    image.setMinDiskSpace(jcloudsImage.getMinDisk());
+    image.setMinRam(jcloudsImage.getMinRam());
+    image.setIsPublic(false);
+    image.setContainerFormat("not provided");
+    image.setDiskFormat("not provided");
+    return image;
+  }
+
+  /**
+   * Returns the active image with the given checksum, formats and visibility which the tenant of
+   * the VimInstance owns, or null if there is none, deduplication is disabled or the images could
+   * not be listed.
+   */
+  private ImageDetails findDuplicateImage(
+      VimInstance vimInstance,
+      String checksum,
+      String diskFormat,
+      String containerFormat,
+      boolean isPublic) {
+    if (!imageDeduplication || checksum == null) {
+      return null;
+    }
+    try {
+      return getImageIndex(vimInstance)
+          .find(checksum, diskFormat, containerFormat, getTenantId(vimInstance), isPublic);
+    } catch (Exception e) {
+      log.warn(
+          "Not able to check for existing images with checksum "
+              + checksum
+              + " on VimInstance with name: "
+              + vimInstance.getName()
+              + ": "
+              + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Returns the images of the VimInstance indexed by checksum. The index is built from one listing
+   * of all images and reused until the configured TTL has passed.
+   */
+  private ImageChecksumIndex getImageIndex(final VimInstance vimInstance)
+      throws ExecutionException {
+    return imageIndexes.get(
+        VimInstanceKey.of(vimInstance),
+        new Callable<ImageChecksumIndex>() {
+          @Override
+          public ImageChecksumIndex call() {
+            ImageChecksumIndex index = new ImageChecksumIndex(pageImageDetails(vimInstance, null));
+            log.debug(
+                "Indexed "
+                    + index.size()
+                    + " images by checksum on VimInstance with name: "
+                    + vimInstance.getName());
+            return index;
+          }
+        });
+  }
+
+  private NFVImage toNFVImage(ImageDetails imageDetails) {
+    NFVImage image = new NFVImage();
+    image.setName(imageDetails.getName());
+    image.setExtId(imageDetails.getId());
+    image.setCreated(imageDetails.getCreatedAt());
+    image.setUpdated(imageDetails.getUpdatedAt());
+    image.setMinDiskSpace(imageDetails.getMinDisk());
+    image.setMinRam(imageDetails.getMinRam());
+    image.setIsPublic(imageDetails.isPublic());
+    image.setDiskFormat(imageDetails.getDiskFormat().toString().toUpperCase());
+    image.setContainerFormat(imageDetails.getContainerFormat().toString().toUpperCase());
+    return image;
+  }
+
+  /**
+   * Copies the attributes of an image as it exists on the VimInstance into the requested one.
+   */
+  private static void copyInto(NFVImage from, NFVImage to) {
+    to.setName(from.getName());
+    to.setExtId(from.getExtId());
+    to.setCreated(from.getCreated());
+    to.setUpdated(from.getUpdated());
+    to.setMinDiskSpace(from.getMinDiskSpace());
+    to.setMinRam(from.getMinRam());
+    to.setIsPublic(from.isPublic());
+    to.setDiskFormat(from.getDiskFormat());
+    to.setContainerFormat(from.getContainerFormat());
+  }
+
   @Override
   public DeploymentFlavour addFlavor(VimInstance vimInstance, DeploymentFlavour flavor)
       throws VimDriverException {
@@ -1145,15 +2346,7 @@ public class OpenstackClient extends VimDriver {
     log.debug(
         "Adding Flavor with name: " + name + " to VimInstance with name: " + vimInstance.getName());
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       FlavorApi flavorApi = novaApi.getFlavorApi(getZone(vimInstance));
       UUID id = java.util.UUID.randomUUID();
       org.jclouds.openstack.nova.v2_0.domain.Flavor newFlavor =
@@ -1182,6 +2375,8 @@ public class OpenstackClient extends VimDriver {
     } catch (Exception e) {
       log.error(e.getMessage(), e);
       throw new VimDriverException(e.getMessage());
+    } finally {
+      flavorCache.invalidate(vimInstance);
     }
   }
 
@@ -1213,15 +2408,7 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       FlavorApi flavorApi = novaApi.getFlavorApi(getZone(vimInstance));
       boolean isDeleted = deleteFlavor(vimInstance, extId);
       if (isDeleted) {
@@ -1257,6 +2444,8 @@ public class OpenstackClient extends VimDriver {
     } catch (Exception e) {
       log.error(e.getMessage(), e);
       throw new VimDriverException(e.getMessage());
+    } finally {
+      flavorCache.invalidate(vimInstance);
     }
   }
 
@@ -1268,15 +2457,7 @@ public class OpenstackClient extends VimDriver {
             + " from VimInstance with name: "
             + vimInstance.getName());
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       FlavorApi flavorApi = novaApi.getFlavorApi(getZone(vimInstance));
       flavorApi.delete(extId);
       boolean isDeleted;
@@ -1303,6 +2484,8 @@ public class OpenstackClient extends VimDriver {
     } catch (Exception e) {
       log.error(e.getMessage(), e);
       throw new VimDriverException(e.getMessage());
+    } finally {
+      flavorCache.invalidate(vimInstance);
     }
   }
 
@@ -1314,23 +2497,10 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       FlavorApi flavorApi = novaApi.getFlavorApi(getZone(vimInstance));
       org.jclouds.openstack.nova.v2_0.domain.Flavor jcloudsFlavor = flavorApi.get(extId);
-      DeploymentFlavour flavor = new DeploymentFlavour();
-      flavor.setFlavour_key(jcloudsFlavor.getName());
-      flavor.setExtId(jcloudsFlavor.getId());
-      flavor.setRam(jcloudsFlavor.getRam());
-      flavor.setDisk(jcloudsFlavor.getDisk());
-      flavor.setVcpus(jcloudsFlavor.getVcpus());
+      DeploymentFlavour flavor = toDeploymentFlavour(jcloudsFlavor);
       log.info(
           "Found Flavor with ExtId: "
               + extId
@@ -1354,33 +2524,25 @@ public class OpenstackClient extends VimDriver {
     }
   }
 
+  private DeploymentFlavour toDeploymentFlavour(
+      org.jclouds.openstack.nova.v2_0.domain.Flavor jcloudsFlavor) {
+    DeploymentFlavour flavor = new DeploymentFlavour();
+    flavor.setExtId(jcloudsFlavor.getId());
+    flavor.setFlavour_key(jcloudsFlavor.getName());
+    flavor.setRam(jcloudsFlavor.getRam());
+    flavor.setDisk(jcloudsFlavor.getDisk());
+    flavor.setVcpus(jcloudsFlavor.getVcpus());
+    return flavor;
+  }
+
+  /**
+   * Lists the flavors from the cached catalog of the VimInstance, see flavor-cache-ttl.
+   */
   @Override
   public List<DeploymentFlavour> listFlavors(VimInstance vimInstance) throws VimDriverException {
     log.debug("Listing Flavours on VimInstance with name: " + vimInstance.getName());
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
-      FlavorApi flavorApi = novaApi.getFlavorApi(getZone(vimInstance));
-      List<DeploymentFlavour> flavors = new ArrayList<DeploymentFlavour>();
-      for (org.jclouds.openstack.nova.v2_0.domain.Flavor jcloudsFlavor :
-          flavorApi.listInDetail().concat()) {
-        DeploymentFlavour flavor = new DeploymentFlavour();
-        log.debug("Found jclouds Flavour: " + jcloudsFlavor);
-        flavor.setExtId(jcloudsFlavor.getId());
-        flavor.setFlavour_key(jcloudsFlavor.getName());
-        flavor.setRam(jcloudsFlavor.getRam());
-        flavor.setDisk(jcloudsFlavor.getDisk());
-        flavor.setVcpus(jcloudsFlavor.getVcpus());
-        log.debug("Found Flavour: " + flavor);
-        flavors.add(flavor);
-      }
+      List<DeploymentFlavour> flavors = flavorCache.get(vimInstance).getFlavors();
       log.info(
           "Listed Flavours on VimInstance with name: "
               + vimInstance.getName()
@@ -1393,6 +2555,34 @@ public class OpenstackClient extends VimDriver {
     }
   }
 
+  /**
+   * Returns the flavor with the given name from the cached catalog of the VimInstance, or null if
+   * there is none.
+   */
+  public DeploymentFlavour findFlavor(VimInstance vimInstance, String flavourKey)
+      throws VimDriverException {
+    try {
+      return flavorCache.get(vimInstance).getByName(flavourKey);
+    } catch (Exception e) {
+      log.error(e.getMessage(), e);
+      throw new VimDriverException(e.getMessage());
+    }
+  }
+
+  private List<DeploymentFlavour> fetchFlavors(VimInstance vimInstance) {
+    NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
+    FlavorApi flavorApi = novaApi.getFlavorApi(getZone(vimInstance));
+    List<DeploymentFlavour> flavors = new ArrayList<DeploymentFlavour>();
+    for (org.jclouds.openstack.nova.v2_0.domain.Flavor jcloudsFlavor :
+        flavorApi.listInDetail().concat()) {
+      log.debug("Found jclouds Flavour: " + jcloudsFlavor);
+      DeploymentFlavour flavor = toDeploymentFlavour(jcloudsFlavor);
+      log.debug("Found Flavour: " + flavor);
+      flavors.add(flavor);
+    }
+    return flavors;
+  }
+
   @Override
   public Network createNetwork(VimInstance vimInstance, Network network) throws VimDriverException {
     Network createdNetwork =
@@ -1414,15 +2604,7 @@ public class OpenstackClient extends VimDriver {
             + vimInstance.getName());
     org.jclouds.openstack.neutron.v2.domain.Network jcloudsNetwork;
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       NetworkApi networkApi = neutronApi.getNetworkApi(getZone(vimInstance));
       //CreateNetwork createNetwork = CreateNetwork.createBuilder(name).networkType(NetworkType.fromValue
       // (networkType)).external(external).shared(shared).segmentationId(segmentationId).physicalNetworkName
@@ -1489,15 +2671,7 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       NetworkApi networkApi = neutronApi.getNetworkApi(getZone(vimInstance));
       //Plugin does not support updating provider attributes. -> NetworkType, SegmentationId, physicalNetworkName
       UpdateNetwork updateNetwork = UpdateNetwork.updateBuilder().name(name).build();
@@ -1535,15 +2709,7 @@ public class OpenstackClient extends VimDriver {
             + " from VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       NetworkApi networkApi = neutronApi.getNetworkApi(getZone(vimInstance));
       boolean isDeleted = networkApi.delete(extId);
       if (isDeleted == true) {
@@ -1574,15 +2740,7 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       NetworkApi networkApi = neutronApi.getNetworkApi(getZone(vimInstance));
       org.jclouds.openstack.neutron.v2.domain.Network jcloudsNetwork = networkApi.get(extId);
       Network network = new Network();
@@ -1630,15 +2788,7 @@ public class OpenstackClient extends VimDriver {
             + " from VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       NetworkApi networkApi = neutronApi.getNetworkApi(getZone(vimInstance));
       List<String> subnets = new ArrayList<String>();
       org.jclouds.openstack.neutron.v2.domain.Network jcloudsNetwork = networkApi.get(extId);
@@ -1673,19 +2823,42 @@ public class OpenstackClient extends VimDriver {
   public List<Network> listNetworks(VimInstance vimInstance) throws VimDriverException {
     log.debug("Listing all Networks of VimInstance with name: " + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       List<Network> networks = new ArrayList<Network>();
       String tenantId = getTenantId(vimInstance);
+      final NetworkApi networkApi = neutronApi.getNetworkApi(getZone(vimInstance));
+      FilteredList<org.jclouds.openstack.neutron.v2.domain.Network> networkList =
+          new FilteredList<org.jclouds.openstack.neutron.v2.domain.Network>() {
+            @Override
+            public IterableWithMarker<org.jclouds.openstack.neutron.v2.domain.Network> list(
+                PaginationOptions options) {
+              return networkApi.list(options);
+            }
+          };
+      // the networks of the tenant and the shared ones
+      Map<String, org.jclouds.openstack.neutron.v2.domain.Network> jcloudsNetworks =
+          new LinkedHashMap<>();
+      List<org.jclouds.openstack.neutron.v2.domain.Network> ownNetworks =
+          listFiltered(
+              vimInstance, "networks", networkList, ImmutableMultimap.of("tenant_id", tenantId));
+      List<org.jclouds.openstack.neutron.v2.domain.Network> sharedNetworks =
+          ownNetworks == null
+              ? null
+              : listFiltered(
+                  vimInstance, "networks", networkList, ImmutableMultimap.of("shared", "true"));
+      if (ownNetworks != null && sharedNetworks != null) {
+        for (org.jclouds.openstack.neutron.v2.domain.Network jcloudsNetwork :
+            Iterables.concat(ownNetworks, sharedNetworks)) {
+          jcloudsNetworks.put(jcloudsNetwork.getId(), jcloudsNetwork);
+        }
+      } else {
+        for (org.jclouds.openstack.neutron.v2.domain.Network jcloudsNetwork :
+            networkApi.list().concat()) {
+          jcloudsNetworks.put(jcloudsNetwork.getId(), jcloudsNetwork);
+        }
+      }
       for (org.jclouds.openstack.neutron.v2.domain.Network jcloudsNetwork :
-          neutronApi.getNetworkApi(getZone(vimInstance)).list().concat()) {
+          jcloudsNetworks.values()) {
         if (jcloudsNetwork.getTenantId().equals(tenantId) || jcloudsNetwork.getShared()) {
           log.debug("Found jclouds Network: " + jcloudsNetwork);
           Network network = new Network();
@@ -1721,15 +2894,7 @@ public class OpenstackClient extends VimDriver {
             + " from VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       SubnetApi subnetApi = neutronApi.getSubnetApi(getZone(vimInstance));
       org.jclouds.openstack.neutron.v2.domain.Subnet jcloudsSubnet = subnetApi.get(extId);
       if (jcloudsSubnet != null) {
@@ -1779,15 +2944,7 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       SubnetApi subnetApi = neutronApi.getSubnetApi(getZone(vimInstance));
       CreateSubnet createSubnet =
           CreateSubnet.createBuilder(network.getExtId(), cidr)
@@ -1850,15 +3007,7 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       SubnetApi subnetApi = neutronApi.getSubnetApi(getZone(vimInstance));
       UpdateSubnet updateSubnet = UpdateSubnet.updateBuilder().name(name).build();
       org.jclouds.openstack.neutron.v2.domain.Subnet jcloudsSubnet =
@@ -1889,31 +3038,34 @@ public class OpenstackClient extends VimDriver {
         "Finding a Router that is connected with external Network on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
 
-      RouterApi routerApi = neutronApi.getRouterApi(getZone(vimInstance)).get();
-      PagedIterable routerList = routerApi.list();
+      final RouterApi routerApi = neutronApi.getRouterApi(getZone(vimInstance)).get();
       String tenantId = getTenantId(vimInstance);
-      if (routerList.iterator().hasNext()) {
-        for (Router router : (FluentIterable<Router>) routerList.concat()) {
-          if (router.getTenantId().equals(tenantId)) {
-            ExternalGatewayInfo externalGatewayInfo = router.getExternalGatewayInfo();
-            if (externalGatewayInfo != null) {
-              String networkId = externalGatewayInfo.getNetworkId();
-              if (getNetworkById(vimInstance, networkId).getExternal()) {
-                log.info(
-                    "Found a Router that is connected with external Network on VimInstance with name: "
-                        + vimInstance.getName());
-                return router.getId();
-              }
+      Iterable<Router> routers =
+          listFiltered(
+              vimInstance,
+              "routers",
+              new FilteredList<Router>() {
+                @Override
+                public IterableWithMarker<Router> list(PaginationOptions options) {
+                  return routerApi.list(options);
+                }
+              },
+              ImmutableMultimap.of("tenant_id", tenantId));
+      if (routers == null) {
+        routers = routerApi.list().concat();
+      }
+      for (Router router : routers) {
+        if (router.getTenantId().equals(tenantId)) {
+          ExternalGatewayInfo externalGatewayInfo = router.getExternalGatewayInfo();
+          if (externalGatewayInfo != null) {
+            String networkId = externalGatewayInfo.getNetworkId();
+            if (getNetworkById(vimInstance, networkId).getExternal()) {
+              log.info(
+                  "Found a Router that is connected with external Network on VimInstance with name: "
+                      + vimInstance.getName());
+              return router.getId();
             }
           }
         }
@@ -1934,15 +3086,7 @@ public class OpenstackClient extends VimDriver {
         "Creating a Router that is connected with external Network on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       RouterApi routerApi = neutronApi.getRouterApi(getZone(vimInstance)).get();
       //Find external network
       String externalNetId = null;
@@ -1995,15 +3139,7 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstnace with name: "
             + vimInstance);
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       RouterApi routerApi = neutronApi.getRouterApi(getZone(vimInstance)).get();
       RouterInterface routerInterface = routerApi.addInterfaceForPort(routerId, portId);
       log.info(
@@ -2030,15 +3166,7 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       PortApi portApi = neutronApi.getPortApi(getZone(vimInstance));
       Port.CreatePort createPort =
           Port.createBuilder(network.getExtId())
@@ -2070,15 +3198,7 @@ public class OpenstackClient extends VimDriver {
             + " from VimInstance with name: "
             + vimInstance.getName());
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       SubnetApi subnetApi = neutronApi.getSubnetApi(getZone(vimInstance));
       boolean isDeleted = subnetApi.delete(extId);
       if (isDeleted == true) {
@@ -2101,6 +3221,10 @@ public class OpenstackClient extends VimDriver {
     }
   }
 
+  /**
+   * Lists the FloatingIPs of the tenant from Neutron and refreshes the cached FloatingIpIndex with
+   * them.
+   */
   private List<String> listFloatingIps(VimInstance vimInstance, boolean listFreeOnly)
       throws VimDriverException {
     if (listFreeOnly == true) {
@@ -2108,17 +3232,44 @@ public class OpenstackClient extends VimDriver {
     } else {
       log.debug("Listing all FloatingIPs of VimInstance with name: " + vimInstance.getName());
     }
+    FloatingIpIndex index = loadFloatingIpIndex(vimInstance);
+    if (listFreeOnly == true) {
+      List<String> floatingIPs = index.getFreeAddresses();
+      log.info(
+          "Listed all free FloatingIPs of VimInstance with name: "
+              + vimInstance.getName()
+              + " -> free FloatingIPs: "
+              + floatingIPs);
+      return floatingIPs;
+    } else {
+      List<String> floatingIPs = index.getAddresses();
+      log.info(
+          "Listed all FloatingIPs of VimInstance with name: "
+              + vimInstance.getName()
+              + " -> FloatingIPs: "
+              + floatingIPs);
+      return floatingIPs;
+    }
+  }
+
+  /**
+   * Returns the FloatingIpIndex of the tenant. A cached one is reused as long as it is younger than
+   * the configured TTL, otherwise the FloatingIPs are listed again.
+   */
+  private FloatingIpIndex getFloatingIpIndex(VimInstance vimInstance) throws VimDriverException {
+    FloatingIpIndex index = floatingIpIndexes.getIfPresent(VimInstanceKey.of(vimInstance));
+    if (index != null) {
+      return index;
+    }
+    return loadFloatingIpIndex(vimInstance);
+  }
+
+  private FloatingIpIndex loadFloatingIpIndex(VimInstance vimInstance) throws VimDriverException {
     String tenantId = getTenantId(vimInstance);
+    // taken before listing, claims made while the listing runs are not settled by it
+    long listedAt = System.currentTimeMillis();
     try {
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
 
       //      if (novaApi.getFloatingIPApi(getZone(vimInstance)).isPresent()){
       boolean floatingIpApiNotPresent = false;
@@ -2129,38 +3280,33 @@ public class OpenstackClient extends VimDriver {
         floatingIpApiNotPresent = true;
       }
 
+      List<FloatingIpIndex.Entry> entries = new ArrayList<>();
       if (!floatingIpApiNotPresent && neutronApiFloatingIPApi.isPresent()) {
-        FloatingIPApi floatingIPApi = neutronApiFloatingIPApi.get();
-
-        //        org.jclouds.openstack.nova.v2_0.extensions.FloatingIPApi floatingIPApi =
-        //            novaApi.getFloatingIPApi(getZone(vimInstance)).get();
-        List<String> floatingIPs = new LinkedList<String>();
-
-        for (FloatingIP floatingIP : floatingIPApi.list(new PaginationOptions())) {
+        final FloatingIPApi floatingIPApi = neutronApiFloatingIPApi.get();
+        Iterable<FloatingIP> floatingIPs =
+            listFiltered(
+                vimInstance,
+                "floatingips",
+                new FilteredList<FloatingIP>() {
+                  @Override
+                  public IterableWithMarker<FloatingIP> list(PaginationOptions options) {
+                    return floatingIPApi.list(options);
+                  }
+                },
+                ImmutableMultimap.of("tenant_id", tenantId));
+        if (floatingIPs == null) {
+          floatingIPs = floatingIPApi.list().concat();
+        }
+        for (FloatingIP floatingIP : floatingIPs) {
           if (floatingIP.getTenantId().equals(tenantId)) {
-            if (listFreeOnly == true) {
-              if (floatingIP.getFixedIpAddress() == null) {
-                floatingIPs.add(floatingIP.getFloatingIpAddress() /*getFloatingIpAddress()*/);
-              }
-            } else {
-              floatingIPs.add(floatingIP.getFloatingIpAddress() /*getFloatingIpAddress()*/);
-            }
+            entries.add(
+                new FloatingIpIndex.Entry(
+                    floatingIP.getId(),
+                    floatingIP.getFloatingIpAddress(),
+                    floatingIP.getPortId(),
+                    floatingIP.getFixedIpAddress()));
           }
         }
-        if (listFreeOnly == true) {
-          log.info(
-              "Listed all free FloatingIPs of VimInstance with name: "
-                  + vimInstance.getName()
-                  + " -> free FloatingIPs: "
-                  + floatingIPs);
-        } else {
-          log.info(
-              "Listed all FloatingIPs of VimInstance with name: "
-                  + vimInstance.getName()
-                  + " -> FloatingIPs: "
-                  + floatingIPs);
-        }
-        return floatingIPs;
       } else {
         /*
         REQ: curl -i http://192.168.45.101:9696/v2.0/floatingips.json -X GET -H "X-Auth-Token: ..." -H
@@ -2168,94 +3314,22 @@ public class OpenstackClient extends VimDriver {
          */
 
         URI endpoint = null;
-        ContextBuilder contextBuilder =
-            ContextBuilder.newBuilder("openstack-nova")
-                .credentials(vimInstance.getUsername(), vimInstance.getPassword())
-                .endpoint(vimInstance.getAuthUrl());
-        ComputeServiceContext context = contextBuilder.buildView(ComputeServiceContext.class);
-        Function<Credentials, Access> auth =
-            context
-                .utils()
-                .injector()
-                .getInstance(Key.get(new TypeLiteral<Function<Credentials, Access>>() {}));
-
-        Access access =
-            auth.apply(
-                new Credentials.Builder<>()
-                    .identity(vimInstance.getTenant() + ":" + vimInstance.getUsername())
-                    .credential(vimInstance.getPassword())
-                    .build());
+        Access access = tokenCache.getAccess(vimInstance);
 
         log.debug("listing FloatingIPs: finding endpoint");
-        for (org.jclouds.openstack.keystone.v2_0.domain.Service service : access) {
-          if (service.getName().equals("neutron")) {
-            for (Endpoint end : service) {
-              endpoint = end.getPublicURL();
-              break;
-            }
-            break;
-          }
-        }
+        endpoint = getEndpoint(access, "neutron");
 
-        HttpURLConnection connection = null;
-        URL url = new URL(endpoint + "/v2.0/floatingips.json");
-        connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setDoOutput(true);
-        connection.setRequestProperty("Accept", "application/json");
-        connection.setRequestProperty("Content-Type", "application/json");
-        connection.setRequestProperty("User-Agent", "python-neutronclient");
-        connection.setRequestProperty("X-Auth-Token", access.getToken().getId());
-
-        InputStream is = connection.getInputStream();
-        BufferedReader rd = new BufferedReader(new InputStreamReader(is));
-        StringBuilder response = new StringBuilder(); // or StringBuffer if not Java 5+
-        String line;
-        while ((line = rd.readLine()) != null) {
-          response.append(line);
-          response.append('\r');
-        }
-        rd.close();
-        //Parse json to object
-        log.debug("List of FloatingIPs: Response of final request is: " + response.toString());
-
-        JsonObject res =
-            new GsonBuilder()
-                .setPrettyPrinting()
-                .create()
-                .fromJson(response.toString(), JsonObject.class);
-
-        log.debug("JsonObject is: " + res);
-
-        List<String> result = new ArrayList<>();
-        if (res.has("floatingips")) {
-          for (JsonElement element : res.get("floatingips").getAsJsonArray()) {
-            log.debug("FloatingIp is: " + element.getAsJsonObject());
-            JsonElement fixed_ip_address = element.getAsJsonObject().get("fixed_ip_address");
-            JsonElement tenant_id = element.getAsJsonObject().get("tenant_id");
-            if (tenant_id.getAsString().equals(tenantId)) {
-              String floating_ip_address =
-                  element.getAsJsonObject().get("floating_ip_address").getAsString();
-              log.debug("found ip: " + floating_ip_address);
-              if (listFreeOnly == true) {
-                if (fixed_ip_address.isJsonNull()) {
-                  result.add(floating_ip_address);
-                }
-              } else {
-                result.add(floating_ip_address);
-              }
-            }
-          }
-        } else {
-          log.warn("Was not possible through Openstack ReST api to retrieve all the FloatingIP");
-        }
-        if (listFreeOnly == true) {
-          log.info("Free Floating ips are: " + result);
-        } else {
-          log.info("Floating ips are: " + result);
-        }
-        return result;
+        entries.addAll(listFloatingIps(access, endpoint, tenantId));
+        log.debug("Listed " + entries.size() + " FloatingIPs of the tenant");
       }
+      FloatingIpIndex index = new FloatingIpIndex(entries);
+      floatingIpIndexes.put(VimInstanceKey.of(vimInstance), index);
+      FloatingIpReservoir reservoir =
+          floatingIpReservoirs.getIfPresent(VimInstanceKey.of(vimInstance));
+      if (reservoir != null) {
+        reservoir.reconcile(index.getFreeAddresses(), listedAt);
+      }
+      return index;
     } catch (Exception e) {
       log.error(e.getMessage(), e);
       throw new VimDriverException(e.getMessage());
@@ -2272,15 +3346,7 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstance with name: "
             + vimInstance.getName());
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       org.jclouds.openstack.nova.v2_0.extensions.FloatingIPApi floatingIPApi =
           novaApi.getFloatingIPApi(getZone(vimInstance)).get();
       floatingIPApi.addToServer(floatingIp, server.getExtId());
@@ -2306,26 +3372,9 @@ public class OpenstackClient extends VimDriver {
             + " on VimInstance with name: "
             + vimInstance.getName());
     try {
-      ContextBuilder contextBuilder =
-          ContextBuilder.newBuilder("openstack-nova")
-              .credentials(vimInstance.getUsername(), vimInstance.getPassword())
-              .endpoint(vimInstance.getAuthUrl());
-      ComputeServiceContext context = contextBuilder.buildView(ComputeServiceContext.class);
-      Function<Credentials, Access> auth =
-          context
-              .utils()
-              .injector()
-              .getInstance(Key.get(new TypeLiteral<Function<Credentials, Access>>() {}));
-      //Get Access and all information
-      Access access =
-          auth.apply(
-              new Credentials.Builder<Credentials>()
-                  .identity(vimInstance.getTenant() + ":" + vimInstance.getUsername())
-                  .credential(vimInstance.getPassword())
-                  .build());
-      //Get Tenant ID of user
-      String tenant_id = access.getToken().getTenant().get().getId();
-      log.info(
+      //Taken from the cached token, this only authenticates if there is none yet
+      String tenant_id = tokenCache.getTenantId(vimInstance);
+      log.debug(
           "Found TenantID for Tenant with name: "
               + vimInstance.getTenant()
               + " on VimInstance with name: "
@@ -2346,56 +3395,20 @@ public class OpenstackClient extends VimDriver {
             + vimInstance.getTenant()
             + " on VimInstance with name: "
             + vimInstance.getName());
-    HttpURLConnection connection = null;
     try {
       Quota quota = new Quota();
-      ContextBuilder contextBuilder =
-          ContextBuilder.newBuilder("openstack-nova")
-              .credentials(vimInstance.getUsername(), vimInstance.getPassword())
-              .endpoint(vimInstance.getAuthUrl());
-      ComputeServiceContext context = contextBuilder.buildView(ComputeServiceContext.class);
-      Function<Credentials, Access> auth =
-          context
-              .utils()
-              .injector()
-              .getInstance(Key.get(new TypeLiteral<Function<Credentials, Access>>() {}));
       //Get Access and all information
-      Access access =
-          auth.apply(
-              new Credentials.Builder<Credentials>()
-                  .identity(vimInstance.getTenant() + ":" + vimInstance.getUsername())
-                  .credential(vimInstance.getPassword())
-                  .build());
+      Access access = tokenCache.getAccess(vimInstance);
       //Get Tenant ID of user
-      String tenant_id = access.getToken().getTenant().get().getId();
+      String tenant_id = getTenantId(vimInstance);
       //Get nova endpoint
       URI endpoint = null;
-      for (org.jclouds.openstack.keystone.v2_0.domain.Service service : access) {
-        if (service.getName().equals("nova")) {
-          for (Endpoint end : service) {
-            endpoint = end.getPublicURL();
-            break;
-          }
-          break;
-        }
-      }
+      endpoint = getEndpoint(access, "nova");
 
       //Prepare quota request
       URL url = new URL(endpoint + "/os-quota-sets/" + tenant_id);
-      connection = (HttpURLConnection) url.openConnection();
-      connection.setRequestMethod("GET");
-      connection.setRequestProperty("Accept", "application/json");
-      connection.setRequestProperty("X-Auth-Token", access.getToken().getId());
       //Get Response
-      InputStream is = connection.getInputStream();
-      BufferedReader rd = new BufferedReader(new InputStreamReader(is));
-      StringBuilder response = new StringBuilder(); // or StringBuffer if not Java 5+
-      String line;
-      while ((line = rd.readLine()) != null) {
-        response.append(line);
-        response.append('\r');
-      }
-      rd.close();
+      String response = restTransport.get(url, access.getToken().getId());
       //Parse json to object
       JsonParser parser = new JsonParser();
       JsonObject json = (JsonObject) parser.parse(response.toString());
@@ -2418,10 +3431,6 @@ public class OpenstackClient extends VimDriver {
     } catch (Exception e) {
       log.error(e.getMessage(), e);
       throw new VimDriverException(e.getMessage());
-    } finally {
-      if (connection != null) {
-        connection.disconnect();
-      }
     }
   }
 
@@ -2431,14 +3440,26 @@ public class OpenstackClient extends VimDriver {
    * @param fip
    * @return
    */
-  public synchronized void associateFloatingIpToNetwork(
+  public void associateFloatingIpToNetwork(
+      VimInstance vimInstance, Server server, Map.Entry<String, String> fip) {
+    Lock lock = floatingIpLocks.get(vimInstance);
+    lock.lock();
+    try {
+      associateFloatingIp(vimInstance, server, fip);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void associateFloatingIp(
       VimInstance vimInstance, Server server, Map.Entry<String, String> fip) {
     log.debug(
         "Associating FloatingIP to VM with hostname: "
             + server.getName()
             + " on VimInstance with name: "
             + vimInstance.getName());
-    HttpURLConnection connection = null;
+    FloatingIpReservoir reservoir = null;
+    String claimedIp = null;
     try {
       String floatingIp = null;
       String privateIp = null;
@@ -2453,8 +3474,17 @@ public class OpenstackClient extends VimDriver {
                     + " . wrong network"
                     + fip.getKey());
           } else {
-            floatingIp = listFloatingIps(vimInstance, true).get(0);
-            log.debug("Got Floating ip" + floatingIp.toString());
+            reservoir = getFloatingIpReservoir(vimInstance);
+            claimedIp = reservoir.claimOrAllocate();
+            floatingIp = claimedIp;
+            if (floatingIp == null) {
+              log.error(
+                  "Cannot assign FloatingIPs to VM with hostname: "
+                      + server.getName()
+                      + ". No FloatingIPs left...");
+              return;
+            }
+            log.debug("Got Floating ip" + floatingIp);
           }
         } else if (validate(fip.getValue())) {
           log.debug("Associating FloatingIP: " + fip.getValue());
@@ -2467,6 +3497,17 @@ public class OpenstackClient extends VimDriver {
                     + fip.getKey());
           } else {
             floatingIp = fip.getValue();
+            reservoir = getFloatingIpReservoir(vimInstance);
+            if (!reservoir.reserve(floatingIp)) {
+              log.error(
+                  "Cannot assign FloatingIP: "
+                      + floatingIp
+                      + " to VM with hostname: "
+                      + server.getName()
+                      + ". It is being associated by another launch already");
+              return;
+            }
+            claimedIp = floatingIp;
           }
         }
       } else {
@@ -2478,64 +3519,24 @@ public class OpenstackClient extends VimDriver {
       }
 
       log.debug("Associating " + floatingIp + " to server: " + server.getName());
-      ContextBuilder contextBuilder =
-          ContextBuilder.newBuilder("openstack-nova")
-              .credentials(vimInstance.getUsername(), vimInstance.getPassword())
-              .endpoint(vimInstance.getAuthUrl());
-      ComputeServiceContext context = contextBuilder.buildView(ComputeServiceContext.class);
-      Function<Credentials, Access> auth =
-          context
-              .utils()
-              .injector()
-              .getInstance(Key.get(new TypeLiteral<Function<Credentials, Access>>() {}));
-
       //Get Access and all information
-      Access access =
-          auth.apply(
-              new Credentials.Builder<Credentials>()
-                  .identity(vimInstance.getTenant() + ":" + vimInstance.getUsername())
-                  .credential(vimInstance.getPassword())
-                  .build());
+      Access access = tokenCache.getAccess(vimInstance);
       //Get Tenant ID of user
 
-      String tenant_id = access.getToken().getTenant().get().getId();
+      String tenant_id = getTenantId(vimInstance);
       //Get nova endpoint
       URI endpoint = null;
 
       log.debug("Associating FloatingIP: finding endpoint");
-      for (org.jclouds.openstack.keystone.v2_0.domain.Service service : access) {
-        if (service.getName().equals("neutron")) {
-          for (Endpoint end : service) {
-            endpoint = end.getPublicURL();
-            break;
-          }
-          break;
-        }
-      }
+      endpoint = getEndpoint(access, "neutron");
 
       log.debug("Associating FloatingIP: Endpoint is: " + endpoint);
 
       // Get floating Ip
       String floatingIpId = null;
       String port_id = null;
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
-      NeutronApi neutronApi =
-          ContextBuilder.newBuilder("openstack-neutron")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NeutronApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
+      NeutronApi neutronApi = apiRegistry.getNeutronApi(vimInstance);
       if (novaApi.getFloatingIPApi(getZone(vimInstance)).isPresent()) {
         org.jclouds.openstack.nova.v2_0.extensions.FloatingIPApi novaFloatingIPApi =
             novaApi.getFloatingIPApi(getZone(vimInstance)).get();
@@ -2553,34 +3554,20 @@ public class OpenstackClient extends VimDriver {
       } else {
         log.warn("Could not access floating ip using the jclouds APIs, trying with restAPI");
 
-        floatingIpId = findFloatingIpId(floatingIp, vimInstance);
-
-        Map<String, String> ports = listPorts(access, endpoint, vimInstance);
+        FloatingIpIndex.Entry floatingIpEntry = getFloatingIpIndex(vimInstance).get(floatingIp);
+        if (floatingIpEntry != null && floatingIpEntry.getId() != null) {
+          floatingIpId = floatingIpEntry.getId();
+        } else {
+          floatingIpId = findFloatingIpId(floatingIp, vimInstance);
+        }
 
-        port_id = ports.get(privateIp);
+        port_id = findPortId(access, endpoint, privateIp, server.getExtId());
 
         URL url = new URL(endpoint + "/v2.0/floatingips/" + floatingIpId + ".json");
-        connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("PUT");
-        connection.setDoOutput(true);
-        connection.setRequestProperty("Accept", "application/json");
-        connection.setRequestProperty("User-Agent", "python-neutronclient");
-        connection.setRequestProperty("X-Auth-Token", access.getToken().getId());
-        OutputStreamWriter out = new OutputStreamWriter(connection.getOutputStream());
         String body = "{\"floatingip\": {\"port_id\": \"" + port_id + "\"}}";
         log.debug("Body is: " + body);
-        out.write(body);
-        out.close();
         //Get Response
-        InputStream is = connection.getInputStream();
-        BufferedReader rd = new BufferedReader(new InputStreamReader(is));
-        StringBuilder response = new StringBuilder(); // or StringBuffer if not Java 5+
-        String line;
-        while ((line = rd.readLine()) != null) {
-          response.append(line);
-          response.append('\r');
-        }
-        rd.close();
+        String response = restTransport.put(url, access.getToken().getId(), body);
         //Parse json to object
         log.debug("Associating FloatingIP: Response of final request is: " + response.toString());
 
@@ -2602,10 +3589,11 @@ public class OpenstackClient extends VimDriver {
       log.warn(
           "It seems that floatingApi is not present or there are not enough available floating ips, this means that "
               + "we will not be able to assign them");
-    } finally {
-      if (connection != null) {
-        connection.disconnect();
+      if (reservoir != null) {
+        reservoir.release(claimedIp);
       }
+    } finally {
+      floatingIpIndexes.invalidate(VimInstanceKey.of(vimInstance));
     }
   }
 
@@ -2674,56 +3662,18 @@ public class OpenstackClient extends VimDriver {
 
   //retrieves the ip pool name from openstack via http request
   public String getIpPoolName(VimInstance vimInstance) {
-    HttpURLConnection connection = null;
     log.info("Began retrieving the name of the ip pool");
     try {
-      ContextBuilder contextBuilder =
-          ContextBuilder.newBuilder("openstack-nova")
-              .credentials(vimInstance.getUsername(), vimInstance.getPassword())
-              .endpoint(vimInstance.getAuthUrl());
-      ComputeServiceContext context = contextBuilder.buildView(ComputeServiceContext.class);
-      Function<Credentials, Access> auth =
-          context
-              .utils()
-              .injector()
-              .getInstance(Key.get(new TypeLiteral<Function<Credentials, Access>>() {}));
       //Get Access and all information
-      Access access =
-          auth.apply(
-              new Credentials.Builder<Credentials>()
-                  .identity(vimInstance.getTenant() + ":" + vimInstance.getUsername())
-                  .credential(vimInstance.getPassword())
-                  .build());
+      Access access = tokenCache.getAccess(vimInstance);
       //Get Tenant ID of user
-      String tenant_id = access.getToken().getTenant().get().getId();
+      String tenant_id = getTenantId(vimInstance);
       //Get nova endpoint
       URI endpoint = null;
-      for (org.jclouds.openstack.keystone.v2_0.domain.Service service : access) {
-        if (service.getName().equals("nova")) {
-          for (Endpoint end : service) {
-            endpoint = end.getPublicURL();
-            break;
-          }
-          break;
-        }
-      }
+      endpoint = getEndpoint(access, "nova");
       URL url = null;
       url = new URL(endpoint + "/os-floating-ip-pools");
-      connection = (HttpURLConnection) url.openConnection();
-      connection.setRequestMethod("GET");
-      connection.setRequestProperty("Accept", "application/json");
-      connection.setRequestProperty("X-Auth-Token", access.getToken().getId());
-      InputStream is = null;
-      is = connection.getInputStream();
-
-      BufferedReader rd = new BufferedReader(new InputStreamReader(is));
-      StringBuilder response = new StringBuilder(); // or StringBuffer if not Java 5+
-      String line;
-      while ((line = rd.readLine()) != null) {
-        response.append(line);
-        response.append('\r');
-      }
-      rd.close();
+      String response = restTransport.get(url, access.getToken().getId());
 
       JsonParser parser = new JsonParser();
       JsonObject json = (JsonObject) parser.parse(response.toString());
@@ -2731,9 +3681,6 @@ public class OpenstackClient extends VimDriver {
       JsonArray ip_pools = json.get("floating_ip_pools").getAsJsonArray();
       String ip_pool_name = ip_pools.get(0).getAsJsonObject().get("name").getAsString();
       log.info("Retrieved the name of ip pool: " + ip_pool_name);
-      if (connection != null) {
-        connection.disconnect();
-      }
       return ip_pool_name;
     } catch (Exception e) {
       log.warn("An error during trying to find the name of the pool");
@@ -2748,15 +3695,7 @@ public class OpenstackClient extends VimDriver {
     }
 
     try {
-      NovaApi novaApi =
-          ContextBuilder.newBuilder("openstack-nova")
-              .endpoint(vimInstance.getAuthUrl())
-              .credentials(
-                  vimInstance.getTenant() + ":" + vimInstance.getUsername(),
-                  vimInstance.getPassword())
-              .modules(modules)
-              .overrides(overrides)
-              .buildApi(NovaApi.class);
+      NovaApi novaApi = apiRegistry.getNovaApi(vimInstance);
       if (novaApi.getFloatingIPApi(getZone(vimInstance)).isPresent()) {
         org.jclouds.openstack.nova.v2_0.extensions.FloatingIPApi floatingIPApi =
             novaApi.getFloatingIPApi(getZone(vimInstance)).get();
@@ -2785,121 +3724,255 @@ public class OpenstackClient extends VimDriver {
   private String findFloatingIpId(String floatingIp, VimInstance vimInstance)
       throws VimDriverException, IOException {
     URI endpoint = null;
-    ContextBuilder contextBuilder =
-        ContextBuilder.newBuilder("openstack-nova")
-            .credentials(vimInstance.getUsername(), vimInstance.getPassword())
-            .endpoint(vimInstance.getAuthUrl());
-    ComputeServiceContext context = contextBuilder.buildView(ComputeServiceContext.class);
-    Function<Credentials, Access> auth =
-        context
-            .utils()
-            .injector()
-            .getInstance(Key.get(new TypeLiteral<Function<Credentials, Access>>() {}));
-
-    Access access =
-        auth.apply(
-            new Credentials.Builder<Credentials>()
-                .identity(vimInstance.getTenant() + ":" + vimInstance.getUsername())
-                .credential(vimInstance.getPassword())
-                .build());
+    Access access = tokenCache.getAccess(vimInstance);
 
     log.debug("listing FloatingIPs: finding endpoint");
+    endpoint = getEndpoint(access, "neutron");
+
+    String cacheKey = endpoint + " floatingip " + floatingIp;
+    String floatingIpId = neutronLookups.getIfPresent(cacheKey);
+    if (floatingIpId != null) {
+      return floatingIpId;
+    }
+    List<FloatingIpIndex.Entry> entries =
+        getFiltered(
+            access,
+            endpoint,
+            "floatingips",
+            "floating_ip_address=" + URLEncoder.encode(floatingIp, "UTF-8"),
+            new RestTransport.ResponseReader<List<FloatingIpIndex.Entry>>() {
+              @Override
+              public List<FloatingIpIndex.Entry> read(Reader reader) throws IOException {
+                return NeutronJsonReader.readFloatingIps(reader, null);
+              }
+            });
+    if (entries == null) {
+      entries = listFloatingIps(access, endpoint, null);
+    }
+    for (FloatingIpIndex.Entry entry : entries) {
+      if (entry.getAddress().equals(floatingIp)) {
+        neutronLookups.put(cacheKey, entry.getId());
+        return entry.getId();
+      }
+    }
+    throw new VimDriverException(
+        "looking for a floating ip id of a not existing floating ip. Sorry for that, we can't really implement very "
+            + "well:(");
+  }
+
+  /**
+   * Returns the public URL of the service with the given name from the service catalog of the
+   * Access, or null if there is no such service.
+   */
+  private URI getEndpoint(Access access, String serviceName) {
     for (org.jclouds.openstack.keystone.v2_0.domain.Service service : access) {
-      if (service.getName().equals("neutron")) {
+      if (service.getName().equals(serviceName)) {
         for (Endpoint end : service) {
-          endpoint = end.getPublicURL();
-          break;
+          return end.getPublicURL();
         }
         break;
       }
     }
+    return null;
+  }
 
-    HttpURLConnection connection = null;
+  /**
+   * Lists the FloatingIPs through the Neutron REST API, reading the response as it is received.
+   *
+   * @param tenantId tenant whose FloatingIPs are listed, or null to list all
+   */
+  private List<FloatingIpIndex.Entry> listFloatingIps(
+      Access access, URI endpoint, final String tenantId) throws IOException {
+    RestTransport.ResponseReader<List<FloatingIpIndex.Entry>> floatingIpReader =
+        new RestTransport.ResponseReader<List<FloatingIpIndex.Entry>>() {
+          @Override
+          public List<FloatingIpIndex.Entry> read(Reader reader) throws IOException {
+            return NeutronJsonReader.readFloatingIps(reader, tenantId);
+          }
+        };
+    if (tenantId != null) {
+      List<FloatingIpIndex.Entry> entries =
+          getFiltered(
+              access,
+              endpoint,
+              "floatingips",
+              "tenant_id=" + URLEncoder.encode(tenantId, "UTF-8"),
+              floatingIpReader);
+      if (entries != null) {
+        return entries;
+      }
+    }
     URL url = new URL(endpoint + "/v2.0/floatingips.json");
-    connection = (HttpURLConnection) url.openConnection();
-    connection.setRequestMethod("GET");
-    connection.setDoOutput(true);
-    connection.setRequestProperty("Accept", "application/json");
-    connection.setRequestProperty("Content-Type", "application/json");
-    connection.setRequestProperty("User-Agent", "python-neutronclient");
-    connection.setRequestProperty("X-Auth-Token", access.getToken().getId());
-
-    InputStream is = connection.getInputStream();
-    BufferedReader rd = new BufferedReader(new InputStreamReader(is));
-    StringBuilder response = new StringBuilder(); // or StringBuffer if not Java 5+
-    String line;
-    while ((line = rd.readLine()) != null) {
-      response.append(line);
-      response.append('\r');
-    }
-    rd.close();
-    //Parse json to object
-    log.debug("Associating FloatingIP: Response of final request is: " + response.toString());
-
-    JsonObject res =
-        new GsonBuilder()
-            .setPrettyPrinting()
-            .create()
-            .fromJson(response.toString(), JsonObject.class);
-
-    if (res.has("floatingips")) {
-      for (JsonElement element : res.get("floatingips").getAsJsonArray()) {
-        log.debug("FloatingIp is: " + element.getAsJsonObject());
-        String floating_ip_address =
-            element.getAsJsonObject().get("floating_ip_address").getAsString();
-        log.debug("found ip: " + floating_ip_address);
-        log.debug(floating_ip_address + " == " + floatingIp);
-        if (floating_ip_address.equals(floatingIp)) {
-          return element.getAsJsonObject().get("id").getAsString();
+    return restTransport.get(url, access.getToken().getId(), floatingIpReader);
+  }
+
+  /**
+   * Sends a GET for a Neutron resource with the given query filter. Returns null if Neutron
+   * rejected the filter as a bad request, the caller then has to list everything and filter by
+   * itself. A rejected filter is not sent to the endpoint again.
+   */
+  private <T> T getFiltered(
+      Access access,
+      URI endpoint,
+      String resource,
+      String query,
+      RestTransport.ResponseReader<T> responseReader)
+      throws IOException {
+    List<String> filterNames = new ArrayList<>();
+    for (String parameter : query.split("&")) {
+      filterNames.add(parameter.split("=", 2)[0]);
+    }
+    String filterKey = filterKey(endpoint, resource, filterNames);
+    if (rejectedFilters.contains(filterKey)) {
+      return null;
+    }
+    try {
+      URL url = new URL(endpoint + "/v2.0/" + resource + ".json?" + query);
+      return restTransport.get(url, access.getToken().getId(), responseReader);
+    } catch (RestTransport.HttpStatusException e) {
+      if (e.getStatusCode() != 400) {
+        throw e;
+      }
+      log.warn(
+          "Neutron at "
+              + endpoint
+              + " rejected the filter "
+              + query
+              + " for "
+              + resource
+              + ", listing all of them: "
+              + e.getMessage());
+      rejectedFilters.add(filterKey);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the options for the page a next link points to. The link carries the marker and the
+   * limit, the filters are added unless the link repeats them already.
+   */
+  private PaginationOptions nextPage(PaginationOptions next, Multimap<String, String> filters) {
+    Multimap<String, String> query = LinkedHashMultimap.create(next.buildQueryParameters());
+    for (String filter : filters.keySet()) {
+      if (!query.containsKey(filter)) {
+        query.putAll(filter, filters.get(filter));
+      }
+    }
+    return new PaginationOptions().queryParameters(query);
+  }
+
+  /**
+   * Returns the key under which a rejection of the filters is remembered, so that a rejected
+   * filter does not disable other filters of the same resource.
+   */
+  private static String filterKey(Object endpoint, String resource, Collection<String> filters) {
+    return endpoint + " " + resource + " " + new TreeSet<>(filters);
+  }
+
+  /**
+   * A jclouds list call returning one page of results for the given options.
+   */
+  private interface FilteredList<T> {
+    IterableWithMarker<T> list(PaginationOptions options);
+  }
+
+  /**
+   * Lists all pages of a jclouds list call with the given query filters, so that only matching
+   * resources are sent by the server. Returns null if the filtered listing failed, the caller then
+   * has to list everything and filter by itself. Filters the API rejects as a bad request are not
+   * sent again. Since older APIs might ignore unknown filters
+   * instead, callers keep checking the results.
+   *
+   * @param resource name of the listed resource, under which a rejection is remembered
+   */
+  private <T> List<T> listFiltered(
+      VimInstance vimInstance,
+      String resource,
+      FilteredList<T> filteredList,
+      Multimap<String, String> filters) {
+    String filterKey = filterKey(vimInstance.getAuthUrl(), resource, filters.keySet());
+    if (rejectedFilters.contains(filterKey)) {
+      return null;
+    }
+    try {
+      List<T> result = new ArrayList<>();
+      PaginationOptions options = new PaginationOptions().queryParameters(filters);
+      Set<Multimap<String, String>> pages = new HashSet<>();
+      while (true) {
+        IterableWithMarker<T> page = filteredList.list(options);
+        Iterables.addAll(result, page);
+        Optional<Object> marker = page.nextMarker();
+        if (!marker.isPresent()) {
+          return result;
+        }
+        options = nextPage((PaginationOptions) marker.get(), filters);
+        if (!pages.add(ImmutableMultimap.copyOf(options.buildQueryParameters()))) {
+          return result;
         }
       }
-    } else {
-      log.warn("Was not possible through Openstack ReST api to retreive all the FloatingIP");
+    } catch (IllegalArgumentException | UnsupportedOperationException e) {
+      log.warn(
+          "Listing "
+              + resource
+              + " filtered by "
+              + filters
+              + " was rejected on VimInstance with name: "
+              + vimInstance.getName()
+              + ", listing all of them from now on: "
+              + e.getMessage());
+      rejectedFilters.add(filterKey);
+      return null;
+    } catch (Exception e) {
+      log.warn(
+          "Listing "
+              + resource
+              + " filtered by "
+              + filters
+              + " failed on VimInstance with name: "
+              + vimInstance.getName()
+              + ", listing all of them: "
+              + e.getMessage());
+      return null;
     }
-    throw new VimDriverException(
-        "looking for a floating ip id of a not existing floating ip. Sorry for that, we can't really implement very "
-            + "well:(");
   }
 
-  private Map<String, String> listPorts(Access access, URI endpoint, VimInstance vimInstance)
+  /**
+   * Returns the id of the port with the fixed IP on the device, asking Neutron only for that port.
+   * Returns null if there is no such port.
+   */
+  private String findPortId(Access access, URI endpoint, String fixedIp, String deviceId)
       throws IOException {
-    Map<String, String> result = new HashMap<>();
-    HttpURLConnection connection = null;
+    String cacheKey = endpoint + " port " + fixedIp + " " + deviceId;
+    String portId = neutronLookups.getIfPresent(cacheKey);
+    if (portId != null) {
+      return portId;
+    }
+    Map<String, String> ports =
+        getFiltered(
+            access,
+            endpoint,
+            "ports",
+            "fixed_ips="
+                + URLEncoder.encode("ip_address=" + fixedIp, "UTF-8")
+                + "&device_id="
+                + URLEncoder.encode(deviceId, "UTF-8"),
+            PORT_READER);
+    if (ports == null) {
+      ports = listPorts(access, endpoint);
+    }
+    portId = ports.get(fixedIp);
+    if (portId != null) {
+      neutronLookups.put(cacheKey, portId);
+    }
+    log.debug("Port of fixed IP: " + fixedIp + " is: " + portId);
+    return portId;
+  }
+
+  private Map<String, String> listPorts(Access access, URI endpoint) throws IOException {
     // curl -g -i -X GET http://192.168.145.70:9696/v2.0/ports.json -H "User-Agent: python-neutronclient" -H "Accept:
     // application/json" -H "X-Auth-Token: {SHA1}30473af2f293a9d6b758bce6a82c8061e5593781"
     URL url = new URL(endpoint + "/v2.0/ports.json");
-    connection = (HttpURLConnection) url.openConnection();
-    connection.setRequestMethod("GET");
-    connection.setDoOutput(true);
-    connection.setRequestProperty("Accept", "application/json");
-    connection.setRequestProperty("User-Agent", "python-neutronclient");
-    connection.setRequestProperty("X-Auth-Token", access.getToken().getId());
-
-    InputStream is = connection.getInputStream();
-    BufferedReader rd = new BufferedReader(new InputStreamReader(is));
-    StringBuilder response = new StringBuilder(); // or StringBuffer if not Java 5+
-    String line;
-    while ((line = rd.readLine()) != null) {
-      response.append(line);
-      response.append('\r');
-    }
-    rd.close();
-    //Parse json to object
-    log.debug("Listing Ports: Response of final request is: " + response.toString());
-
-    JsonObject ports =
-        new GsonBuilder()
-            .setPrettyPrinting()
-            .create()
-            .fromJson(response.toString(), JsonObject.class);
-
-    for (JsonElement port : ports.get("ports").getAsJsonArray()) {
-      for (JsonElement ip : port.getAsJsonObject().get("fixed_ips").getAsJsonArray()) {
-        result.put(
-            ip.getAsJsonObject().get("ip_address").getAsString(),
-            port.getAsJsonObject().get("id").getAsString());
-      }
-    }
+    Map<String, String> result = restTransport.get(url, access.getToken().getId(), PORT_READER);
 
     log.debug("Found all the ports: " + result);
     return result;
@@ -2909,4 +3982,15 @@ public class OpenstackClient extends VimDriver {
   public String getType(VimInstance vimInstance) {
     return "openstack";
   }
+
+  private static class ResolvedZone {
+
+    private final String locationName;
+    private final String zone;
+
+    private ResolvedZone(String locationName, String zone) {
+      this.locationName = locationName;
+      this.zone = zone;
+    }
+  }
 }
@@ -0,0 +1,94 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a stream, so that the progress, throughput and remaining time of an
+ * upload reading it can be reported from another thread.
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+  private final long started = System.currentTimeMillis();
+  private volatile long bytesRead;
+
+  public ProgressInputStream(InputStream in) {
+    super(in);
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = in.read();
+    if (b >= 0) {
+      bytesRead++;
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    int count = in.read(buffer, offset, length);
+    if (count > 0) {
+      bytesRead += count;
+    }
+    return count;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = in.skip(n);
+    bytesRead += skipped;
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  /**
+   * Returns the average number of bytes read per second since the stream was created.
+   */
+  public long getThroughput() {
+    long elapsed = System.currentTimeMillis() - started;
+    return elapsed <= 0 ? 0 : bytesRead * 1000 / elapsed;
+  }
+
+  /**
+   * Returns the seconds it takes at the current throughput until the given number of bytes is
+   * read, or -1 if the total or the throughput is unknown.
+   */
+  public long getRemainingSeconds(long totalBytes) {
+    long throughput = getThroughput();
+    if (totalBytes < 0 || throughput <= 0) {
+      return -1;
+    }
+    return Math.max(0, totalBytes - bytesRead) / throughput;
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Sends the requests which go to the OpenStack REST APIs directly instead of through jclouds.
+ *
+ * <p>Connections are pooled per host by the keep-alive cache of the JDK, which reuses a connection
+ * only if its response was read to the end and closed without disconnecting. Every request here is
+ * therefore drained completely, also when it failed, so that floating IP operations reuse the
+ * established (TLS) connections instead of opening new ones. Responses are requested gzipped.
+ *
+ * <p>The keep-alive cache is shared by the whole JVM, jclouds included, so its size is left to the
+ * JDK default of 5 idle connections per host. It can be changed with the http.maxConnections
+ * system property on the command line.
+ */
+public class RestTransport {
+
+  private static Logger log = LoggerFactory.getLogger(RestTransport.class);
+
+  /**
+   * Consumes the body of a successful response.
+   */
+  public interface ResponseReader<T> {
+    T read(Reader reader) throws IOException;
+  }
+
+  /**
+   * Thrown when the server answered with an error status.
+   */
+  public static class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public HttpStatusException(String message, int statusCode, Throwable cause) {
+      super(message, cause);
+      this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+      return statusCode;
+    }
+  }
+
+  private static final ResponseReader<String> TO_STRING =
+      new ResponseReader<String>() {
+        @Override
+        public String read(Reader reader) throws IOException {
+          StringBuilder response = new StringBuilder();
+          char[] buffer = new char[8192];
+          int read;
+          while ((read = reader.read(buffer)) != -1) {
+            response.append(buffer, 0, read);
+          }
+          return response.toString();
+        }
+      };
+
+  private final int connectTimeoutMillis;
+  private final int readTimeoutMillis;
+
+  public RestTransport(int connectTimeoutMillis, int readTimeoutMillis) {
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    this.readTimeoutMillis = readTimeoutMillis;
+  }
+
+  public String get(URL url, String token) throws IOException {
+    return execute(url, "GET", token, null, TO_STRING);
+  }
+
+  /**
+   * Sends a GET request and hands the response to the reader while it is received, so that it
+   * never has to be held in memory as a whole.
+   */
+  public <T> T get(URL url, String token, ResponseReader<T> responseReader) throws IOException {
+    return execute(url, "GET", token, null, responseReader);
+  }
+
+  public String put(URL url, String token, String body) throws IOException {
+    return execute(url, "PUT", token, body, TO_STRING);
+  }
+
+  private <T> T execute(
+      URL url, String method, String token, String body, ResponseReader<T> responseReader)
+      throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setConnectTimeout(connectTimeoutMillis);
+    connection.setReadTimeout(readTimeoutMillis);
+    connection.setRequestMethod(method);
+    connection.setRequestProperty("Accept", "application/json");
+    connection.setRequestProperty("Accept-Encoding", "gzip");
+    connection.setRequestProperty("User-Agent", "python-neutronclient");
+    connection.setRequestProperty("X-Auth-Token", token);
+    if (body != null) {
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/json");
+      OutputStream out = connection.getOutputStream();
+      try {
+        out.write(body.getBytes(StandardCharsets.UTF_8));
+      } finally {
+        out.close();
+      }
+    }
+    InputStream in;
+    try {
+      in = connection.getInputStream();
+    } catch (IOException e) {
+      InputStream error = connection.getErrorStream();
+      if (error == null) {
+        throw e;
+      }
+      String response = read(connection, error, TO_STRING);
+      log.debug(method + " " + url + " failed, response is: " + response);
+      int statusCode = connection.getResponseCode();
+      throw new HttpStatusException(
+          method + " " + url + " failed with HTTP " + statusCode + ": " + response, statusCode, e);
+    }
+    return read(connection, in, responseReader);
+  }
+
+  /**
+   * Reads the response to the end and closes it, which hands the connection back to the pool.
+   */
+  private <T> T read(HttpURLConnection connection, InputStream in, ResponseReader<T> responseReader)
+      throws IOException {
+    try {
+      if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+        in = new GZIPInputStream(in);
+      }
+      T result = responseReader.read(new InputStreamReader(in, StandardCharsets.UTF_8));
+      // whatever the reader left unread must be consumed too for the connection to be reused
+      byte[] buffer = new byte[8192];
+      while (in.read(buffer) != -1) {}
+      return result;
+    } finally {
+      in.close();
+    }
+  }
+}
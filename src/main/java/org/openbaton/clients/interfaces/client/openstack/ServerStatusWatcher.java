@@ -0,0 +1,159 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.jclouds.openstack.nova.v2_0.domain.Server;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.exceptions.VimDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Watches the status of servers for everybody waiting on them. Per VimInstance there is a single
+ * poll loop, which lists all servers of the tenant once per tick and completes the waiters whose
+ * server reached one of the awaited statuses. The loop only runs while somebody is waiting.
+ *
+ * <p>Each waiter decides through the {@link WaitPolicy} when its server should be checked next, and
+ * the loop ticks when the first of them is due. Waiters with a timeout fail once it has passed.
+ */
+public class ServerStatusWatcher extends VimPoller<Server, ServerStatusWatcher.Waiter> {
+
+  private static Logger log = LoggerFactory.getLogger(ServerStatusWatcher.class);
+
+  /** Ticks a server may be missing from the listing before a wait for it fails. */
+  private static final int MAX_MISSING_TICKS = 3;
+
+  /**
+   * Lists the servers of a VimInstance in detail.
+   */
+  public interface ServerSource {
+    Iterable<Server> listServers(VimInstance vimInstance) throws Exception;
+  }
+
+  private final ServerSource source;
+
+  public ServerStatusWatcher(
+      ServerSource source,
+      ScheduledExecutorService scheduler,
+      Executor executor,
+      WaitPolicy policy) {
+    super("VMs", scheduler, executor, policy);
+    this.source = source;
+  }
+
+  /**
+   * Same as {@link #watch(VimInstance, String, Set, long, long)} without timeout and expected
+   * duration.
+   */
+  public ListenableFuture<Server> watch(
+      VimInstance vimInstance, String extId, Set<Server.Status> statuses) {
+    return watch(vimInstance, extId, statuses, 0, -1);
+  }
+
+  /**
+   * Returns a future which completes with the server as soon as its status is one of the given
+   * ones. If DELETED is one of them, the future also completes, with null, once the server is not
+   * listed anymore. Cancelling the future stops watching the server.
+   *
+   * @param timeoutMillis time after which the future fails with a VimDriverException, or 0 to wait
+   *     without limit
+   * @param expectedMillis time after which the status is expected to be reached, or -1 if unknown
+   */
+  public ListenableFuture<Server> watch(
+      VimInstance vimInstance,
+      String extId,
+      Set<Server.Status> statuses,
+      long timeoutMillis,
+      long expectedMillis) {
+    return poll(vimInstance, new Waiter(extId, statuses, timeoutMillis, expectedMillis));
+  }
+
+  /**
+   * Returns the number of servers currently watched on the VimInstance.
+   */
+  public int getWatchedCount(VimInstance vimInstance) {
+    return getPendingCount(vimInstance);
+  }
+
+  @Override
+  protected Iterable<Server> list(VimInstance vimInstance, Collection<Waiter> waiters)
+      throws Exception {
+    return source.listServers(vimInstance);
+  }
+
+  @Override
+  protected String getId(Server server) {
+    return server.getId();
+  }
+
+  @Override
+  protected boolean update(VimInstance vimInstance, Waiter waiter, Server server) {
+    if (server == null) {
+      if (waiter.statuses.contains(Server.Status.DELETED)) {
+        log.debug("VM with ExtId: " + waiter.id + " is not listed anymore");
+        waiter.future.set(null);
+        return true;
+      }
+      if (++waiter.missingTicks >= MAX_MISSING_TICKS) {
+        waiter.future.setException(
+            new VimDriverException(
+                "VM with ExtId: "
+                    + waiter.id
+                    + " not found on VimInstance with name: "
+                    + vimInstance.getName()));
+        return true;
+      }
+      return false;
+    }
+    waiter.missingTicks = 0;
+    if (waiter.statuses.contains(server.getStatus())) {
+      log.debug("VM with ExtId: " + waiter.id + " is in status " + server.getStatus());
+      waiter.future.set(server);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  protected String describe(Waiter waiter) {
+    return "VM with ExtId: " + waiter.id + " to reach one of the statuses " + waiter.statuses;
+  }
+
+  static class Waiter extends VimPoller.Wait<Server> {
+
+    private final Set<Server.Status> statuses;
+    private int missingTicks;
+
+    private Waiter(
+        String extId, Set<Server.Status> statuses, long timeoutMillis, long expectedMillis) {
+      super(extId, timeoutMillis, expectedMillis);
+      this.statuses = statuses;
+    }
+  }
+}
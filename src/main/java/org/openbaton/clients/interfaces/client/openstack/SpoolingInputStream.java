@@ -0,0 +1,83 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Writes everything read from a stream to a spool, so that the content can be read again after
+ * the stream was consumed, e.g. to retry a failed upload from a local file. The spool is not
+ * closed.
+ */
+public class SpoolingInputStream extends FilterInputStream {
+
+  private final OutputStream spool;
+
+  public SpoolingInputStream(InputStream in, OutputStream spool) {
+    super(in);
+    this.spool = spool;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = in.read();
+    if (b >= 0) {
+      spool.write(b);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    int count = in.read(buffer, offset, length);
+    if (count > 0) {
+      spool.write(buffer, offset, count);
+    }
+    return count;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    // skipped bytes must be spooled as well
+    byte[] buffer = new byte[(int) Math.min(n, 8192)];
+    int count = read(buffer, 0, buffer.length);
+    return Math.max(0, count);
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  /**
+   * Reads the rest of the stream into the spool.
+   */
+  public void drain() throws IOException {
+    byte[] buffer = new byte[8192];
+    while (read(buffer, 0, buffer.length) >= 0) {
+      // spooled by read
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads a stream once and hands its content to several consumers, each reading its own stream.
+ * The content is read in chunks which all targets share, and every target has a bounded queue of
+ * chunks. A target which falls behind holds back the reading once its queue is full, so the
+ * memory used is bounded and all targets progress at the pace of the slowest one.
+ *
+ * <p>A target which stops reading, e.g. because its upload failed, must be marked as finished.
+ * It is skipped from then on, so it does not block the others.
+ */
+public class StreamFanOut {
+
+  private static final byte[] END = new byte[0];
+  private static final long OFFER_INTERVAL_MILLIS = 100;
+
+  private final int chunkSize;
+  private final Target[] targets;
+  private volatile IOException failure;
+
+  public StreamFanOut(int targetCount, int chunkSize, int queuedChunks) {
+    this.chunkSize = chunkSize;
+    this.targets = new Target[targetCount];
+    for (int i = 0; i < targetCount; i++) {
+      targets[i] = new Target(queuedChunks);
+    }
+  }
+
+  /**
+   * Returns the stream of the target with the given index.
+   */
+  public InputStream getStream(int target) {
+    return targets[target];
+  }
+
+  /**
+   * Returns the number of bytes the target has read so far.
+   */
+  public long getBytesRead(int target) {
+    return targets[target].bytesRead.get();
+  }
+
+  /**
+   * Marks the target as finished. No more chunks are queued for it.
+   */
+  public void finish(int target) {
+    targets[target].finished = true;
+    targets[target].chunks.clear();
+  }
+
+  /**
+   * Reads the source until its end and queues its content for all targets which are not
+   * finished. Returns early if all targets are finished. If the source fails, the targets get the
+   * exception once they read past the content received so far.
+   */
+  public void pump(InputStream source) throws IOException, InterruptedException {
+    try {
+      while (true) {
+        byte[] buffer = new byte[chunkSize];
+        int length = 0;
+        int read = 0;
+        while (length < chunkSize
+            && (read = source.read(buffer, length, chunkSize - length)) >= 0) {
+          length += read;
+        }
+        if (length > 0) {
+          byte[] chunk = length == chunkSize ? buffer : Arrays.copyOf(buffer, length);
+          if (!offer(chunk)) {
+            return;
+          }
+        }
+        if (read < 0) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      failure = e;
+      offer(END);
+      throw e;
+    }
+    offer(END);
+  }
+
+  /**
+   * Queues the chunk for every target which is not finished, waiting while queues are full.
+   * Returns false if all targets are finished.
+   */
+  private boolean offer(byte[] chunk) throws InterruptedException {
+    boolean anyActive = false;
+    for (Target target : targets) {
+      while (!target.finished) {
+        if (target.chunks.offer(chunk, OFFER_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+          anyActive = true;
+          break;
+        }
+      }
+    }
+    return anyActive;
+  }
+
+  private class Target extends InputStream {
+
+    private final BlockingQueue<byte[]> chunks;
+    private final AtomicLong bytesRead = new AtomicLong();
+    private volatile boolean finished;
+    private byte[] chunk;
+    private int position;
+
+    private Target(int queuedChunks) {
+      this.chunks = new ArrayBlockingQueue<>(queuedChunks);
+    }
+
+    /**
+     * Takes the next chunk if the current one is read completely. Returns false at the end of the
+     * content, and fails every time if the source failed.
+     */
+    private boolean nextChunk() throws IOException {
+      if (chunk != END && (chunk == null || position >= chunk.length)) {
+        try {
+          chunk = chunks.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for the next chunk", e);
+        }
+        position = 0;
+      }
+      if (chunk == END) {
+        if (failure != null) {
+          throw new IOException("Reading the source failed: " + failure.getMessage(), failure);
+        }
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!nextChunk()) {
+        return -1;
+      }
+      bytesRead.incrementAndGet();
+      return chunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      if (!nextChunk()) {
+        return -1;
+      }
+      int count = Math.min(length, chunk.length - position);
+      System.arraycopy(chunk, position, buffer, offset, count);
+      position += count;
+      bytesRead.addAndGet(count);
+      return count;
+    }
+
+    @Override
+    public int available() {
+      return chunk == null || chunk == END ? 0 : chunk.length - position;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import com.google.common.base.Objects;
+import com.google.common.hash.Hashing;
+
+import org.openbaton.catalogue.nfvo.VimInstance;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Identifies the endpoint and the credentials of a VimInstance. Two VimInstances with the same
+ * authUrl, tenant, username and password map to equal keys, so everything cached under a key can be
+ * shared between them. The password itself is never kept, only its SHA-256 hash.
+ */
+public class VimInstanceKey {
+
+  private final String authUrl;
+  private final String tenant;
+  private final String username;
+  private final String credentialHash;
+
+  private VimInstanceKey(String authUrl, String tenant, String username, String credentialHash) {
+    this.authUrl = authUrl;
+    this.tenant = tenant;
+    this.username = username;
+    this.credentialHash = credentialHash;
+  }
+
+  public static VimInstanceKey of(VimInstance vimInstance) {
+    String password = vimInstance.getPassword() == null ? "" : vimInstance.getPassword();
+    return new VimInstanceKey(
+        vimInstance.getAuthUrl(),
+        vimInstance.getTenant(),
+        vimInstance.getUsername(),
+        Hashing.sha256().hashString(password, StandardCharsets.UTF_8).toString());
+  }
+
+  /**
+   * Returns the identifier under which the NFVO knows the VimInstance. It stays the same when the
+   * credentials or the endpoint of the VimInstance are changed.
+   */
+  public static String idOf(VimInstance vimInstance) {
+    return vimInstance.getId() != null ? vimInstance.getId() : vimInstance.getName();
+  }
+
+  public String getAuthUrl() {
+    return authUrl;
+  }
+
+  public String getTenant() {
+    return tenant;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof VimInstanceKey)) return false;
+    VimInstanceKey that = (VimInstanceKey) o;
+    return Objects.equal(authUrl, that.authUrl)
+        && Objects.equal(tenant, that.tenant)
+        && Objects.equal(username, that.username)
+        && Objects.equal(credentialHash, that.credentialHash);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(authUrl, tenant, username, credentialHash);
+  }
+
+  @Override
+  public String toString() {
+    return "VimInstanceKey{authUrl="
+        + authUrl
+        + ", tenant="
+        + tenant
+        + ", username="
+        + username
+        + "}";
+  }
+}
@@ -0,0 +1,334 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.exceptions.VimDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the resources of VimInstances for everybody waiting on one of them. Per VimInstance there
+ * is a single poll loop, which lists the resources once per tick and offers each wait its resource.
+ * The loop only runs while somebody is waiting.
+ *
+ * <p>Each wait decides through the {@link WaitPolicy} when its resource should be checked next, and
+ * the loop ticks when the first of them is due. Waits with a timeout fail once it has passed, and
+ * all waits of a VimInstance fail after {@link #MAX_FAILED_TICKS} consecutive failed listings.
+ *
+ * @param <T> type of the listed resources
+ * @param <W> type of the waits
+ */
+public abstract class VimPoller<T, W extends VimPoller.Wait<T>> {
+
+  private static Logger log = LoggerFactory.getLogger(VimPoller.class);
+
+  /** Consecutive failed listings after which all waits of a VimInstance fail. */
+  private static final int MAX_FAILED_TICKS = 3;
+
+  private final String resources;
+  private final ScheduledExecutorService scheduler;
+  private final Executor executor;
+  private final WaitPolicy policy;
+  private final ConcurrentMap<VimInstanceKey, Loop> loops = new ConcurrentHashMap<>();
+
+  /**
+   * @param resources name of the listed resources in log messages, e.g. "VMs"
+   */
+  protected VimPoller(
+      String resources, ScheduledExecutorService scheduler, Executor executor, WaitPolicy policy) {
+    this.resources = resources;
+    this.scheduler = scheduler;
+    this.executor = executor;
+    this.policy = policy;
+  }
+
+  /**
+   * Lists the resources of the VimInstance which the given waits may need.
+   */
+  protected abstract Iterable<T> list(VimInstance vimInstance, Collection<W> waits)
+      throws Exception;
+
+  /** Returns the ID by which waits refer to the resource. */
+  protected abstract String getId(T resource);
+
+  /**
+   * Completes the wait if its resource ended it, and returns whether it did.
+   *
+   * @param resource the listed resource of the wait, or null if it is not listed
+   */
+  protected abstract boolean update(VimInstance vimInstance, W wait, T resource);
+
+  /**
+   * Describes what the wait is waiting for, for the message of its timeout.
+   */
+  protected abstract String describe(W wait);
+
+  /**
+   * Returns a pending wait which does the same as the given one, so that its future is returned
+   * instead of adding the given wait. By default every wait is added.
+   */
+  protected W findEquivalent(Collection<W> pending, W wait) {
+    return null;
+  }
+
+  /**
+   * Adds the wait to the poll loop of the VimInstance, starting the loop if needed, and returns the
+   * future of the wait, or of an equivalent pending one.
+   */
+  protected ListenableFuture<T> poll(VimInstance vimInstance, W wait) {
+    VimInstanceKey key = VimInstanceKey.of(vimInstance);
+    while (true) {
+      Loop loop = loops.get(key);
+      if (loop == null) {
+        loop = new Loop(key, vimInstance);
+        Loop existing = loops.putIfAbsent(key, loop);
+        if (existing != null) {
+          loop = existing;
+        }
+      }
+      ListenableFuture<T> future = loop.add(vimInstance, wait);
+      if (future != null) {
+        return future;
+      }
+      // the loop was just stopped, start a new one
+    }
+  }
+
+  /**
+   * Returns the number of waits currently pending on the VimInstance.
+   */
+  public int getPendingCount(VimInstance vimInstance) {
+    Loop loop = loops.get(VimInstanceKey.of(vimInstance));
+    return loop == null ? 0 : loop.size();
+  }
+
+  /**
+   * A wait for a resource of a VimInstance, completing its future once the resource is done.
+   */
+  public static class Wait<T> {
+
+    final String id;
+    final SettableFuture<T> future = SettableFuture.create();
+    final long started = System.currentTimeMillis();
+    private final long deadline;
+    private final long expectedMillis;
+    private int attempts;
+    long nextCheck;
+
+    /**
+     * @param timeoutMillis time after which the wait fails with a VimDriverException, or 0 to wait
+     *     without limit
+     * @param expectedMillis time after which the resource is expected to be done, or -1 if unknown
+     */
+    protected Wait(String id, long timeoutMillis, long expectedMillis) {
+      this.id = id;
+      this.deadline = timeoutMillis > 0 ? started + timeoutMillis : 0;
+      this.expectedMillis = expectedMillis;
+    }
+
+    void planNextCheck(WaitPolicy policy, long now) {
+      long elapsed = now - started;
+      nextCheck = now + policy.nextDelay(attempts, elapsed, expectedMillis);
+      if (expectedMillis <= 0 || elapsed >= expectedMillis) {
+        attempts++;
+      }
+      if (deadline > 0 && nextCheck > deadline) {
+        nextCheck = deadline;
+      }
+    }
+
+    boolean isTimedOut(long now) {
+      return deadline > 0 && now >= deadline;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public SettableFuture<T> getFuture() {
+      return future;
+    }
+  }
+
+  private class Loop implements Runnable {
+
+    private final VimInstanceKey key;
+    private VimInstance vimInstance;
+    private final List<W> waits = new ArrayList<>();
+    private ScheduledFuture<?> tick;
+    private long tickAt;
+    private int generation;
+    private boolean running;
+    private boolean stopped;
+    private int failedTicks;
+
+    private Loop(VimInstanceKey key, VimInstance vimInstance) {
+      this.key = key;
+      this.vimInstance = vimInstance;
+    }
+
+    private synchronized ListenableFuture<T> add(VimInstance vimInstance, W wait) {
+      if (stopped) {
+        return null;
+      }
+      this.vimInstance = vimInstance;
+      W equivalent = findEquivalent(waits, wait);
+      if (equivalent != null) {
+        return equivalent.future;
+      }
+      wait.planNextCheck(policy, wait.started);
+      waits.add(wait);
+      if (!running && (tick == null || wait.nextCheck < tickAt)) {
+        scheduleTick();
+      }
+      return wait.future;
+    }
+
+    private synchronized int size() {
+      return waits.size();
+    }
+
+    /**
+     * Schedules the next tick for when the first wait is due, replacing the scheduled one.
+     */
+    private void scheduleTick() {
+      if (tick != null) {
+        tick.cancel(false);
+      }
+      long next = Long.MAX_VALUE;
+      for (W wait : waits) {
+        next = Math.min(next, wait.nextCheck);
+      }
+      final int tickGeneration = ++generation;
+      tickAt = next;
+      tick =
+          scheduler.schedule(
+              new Runnable() {
+                @Override
+                public void run() {
+                  synchronized (Loop.this) {
+                    if (tickGeneration != generation || running) {
+                      return;
+                    }
+                    running = true;
+                  }
+                  executor.execute(Loop.this);
+                }
+              },
+              Math.max(0, next - System.currentTimeMillis()),
+              TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+      VimInstance current;
+      List<W> pending;
+      synchronized (this) {
+        current = vimInstance;
+        pending = new ArrayList<>(waits);
+      }
+      Map<String, T> listed = null;
+      Exception failure = null;
+      try {
+        listed = new HashMap<>();
+        for (T resource : list(current, pending)) {
+          listed.put(getId(resource), resource);
+        }
+      } catch (Exception e) {
+        failure = e;
+      }
+      synchronized (this) {
+        running = false;
+        if (failure != null) {
+          failedTicks++;
+          log.warn(
+              "Not able to list "
+                  + resources
+                  + " of VimInstance with name: "
+                  + current.getName()
+                  + " ("
+                  + failedTicks
+                  + "/"
+                  + MAX_FAILED_TICKS
+                  + "): "
+                  + failure.getMessage());
+          if (failedTicks >= MAX_FAILED_TICKS) {
+            for (W wait : waits) {
+              wait.future.setException(new VimDriverException(failure.getMessage()));
+            }
+            waits.clear();
+          }
+        } else {
+          failedTicks = 0;
+          for (Iterator<W> iterator = waits.iterator(); iterator.hasNext(); ) {
+            W wait = iterator.next();
+            // a wait which is done already was cancelled by its owner
+            if (wait.future.isDone() || update(current, wait, listed.get(wait.id))) {
+              iterator.remove();
+            }
+          }
+        }
+        long now = System.currentTimeMillis();
+        for (Iterator<W> iterator = waits.iterator(); iterator.hasNext(); ) {
+          W wait = iterator.next();
+          if (wait.isTimedOut(now)) {
+            wait.future.setException(
+                new VimDriverException(
+                    "Timed out after "
+                        + (now - wait.started) / 1000
+                        + " seconds waiting for "
+                        + describe(wait)
+                        + " on VimInstance with name: "
+                        + current.getName()));
+            iterator.remove();
+          } else if (wait.nextCheck <= now) {
+            wait.planNextCheck(policy, now);
+          }
+        }
+        if (waits.isEmpty()) {
+          stopped = true;
+          tick = null;
+          loops.remove(key, this);
+        } else {
+          scheduleTick();
+        }
+      }
+    }
+  }
+}
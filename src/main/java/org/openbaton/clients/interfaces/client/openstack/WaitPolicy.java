@@ -0,0 +1,76 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.clients.interfaces.client.openstack;
+
+import java.util.Random;
+
+/**
+ * Decides how long to wait before checking the status of a server again.
+ *
+ * <p>Without an expected duration the delay grows exponentially from the minimum to the maximum
+ * interval. With an expected duration, e.g. the usual boot time of an image and flavor, the server
+ * is checked rarely at first and more often as the expected completion comes closer. Once it is
+ * overdue the delay grows exponentially again. A random jitter spreads the checks of servers which
+ * were started together.
+ */
+public class WaitPolicy {
+
+  private final long minIntervalMillis;
+  private final long maxIntervalMillis;
+  private final double multiplier;
+  private final double jitter;
+  private final Random random = new Random();
+
+  public WaitPolicy(
+      long minIntervalMillis, long maxIntervalMillis, double multiplier, double jitter) {
+    this.minIntervalMillis = minIntervalMillis;
+    this.maxIntervalMillis = Math.max(minIntervalMillis, maxIntervalMillis);
+    this.multiplier = Math.max(1, multiplier);
+    this.jitter = Math.min(1, Math.max(0, jitter));
+  }
+
+  /**
+   * Returns the delay before the next check.
+   *
+   * @param attempt number of checks done so far past the expected duration, or since the start if
+   *     there is no expected duration
+   * @param elapsedMillis time since the wait started
+   * @param expectedMillis expected duration of the wait, or a value lower than 1 if it is unknown
+   */
+  public long nextDelay(int attempt, long elapsedMillis, long expectedMillis) {
+    long delay;
+    long remaining = expectedMillis - elapsedMillis;
+    if (expectedMillis > 0 && remaining > 0) {
+      delay = remaining / 2;
+    } else {
+      delay = (long) (minIntervalMillis * Math.pow(multiplier, attempt));
+    }
+    delay = Math.min(maxIntervalMillis, Math.max(minIntervalMillis, delay));
+    if (jitter > 0) {
+      delay += (long) (delay * jitter * (random.nextDouble() * 2 - 1));
+    }
+    return Math.max(0, delay);
+  }
+
+  public long getMinIntervalMillis() {
+    return minIntervalMillis;
+  }
+}
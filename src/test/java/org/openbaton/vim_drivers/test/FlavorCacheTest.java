@@ -0,0 +1,145 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.vim_drivers.test;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbaton.catalogue.mano.common.DeploymentFlavour;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.clients.interfaces.client.openstack.FlavorCache;
+import org.openbaton.clients.interfaces.client.openstack.FlavorCatalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FlavorCacheTest {
+
+  private final List<DeploymentFlavour> flavors = new CopyOnWriteArrayList<>();
+  private final AtomicInteger listings = new AtomicInteger();
+  private final List<Runnable> refreshes = new ArrayList<>();
+  private Runnable whileListing;
+  private VimInstance vimInstance;
+
+  @Before
+  public void init() {
+    flavors.add(createFlavor("flavor_id_1", "m1.small"));
+    vimInstance = new VimInstance();
+    vimInstance.setName("mocked_vim_instance");
+    vimInstance.setAuthUrl("http://mocked_auth_url:5000/v2.0");
+    vimInstance.setTenant("mocked_tenant");
+    vimInstance.setUsername("mocked_user");
+    vimInstance.setPassword("mocked_password");
+  }
+
+  private DeploymentFlavour createFlavor(String extId, String flavourKey) {
+    DeploymentFlavour flavor = new DeploymentFlavour();
+    flavor.setExtId(extId);
+    flavor.setFlavour_key(flavourKey);
+    flavor.setVcpus(1);
+    flavor.setRam(512);
+    flavor.setDisk(1);
+    return flavor;
+  }
+
+  private FlavorCache createCache(long ttlMillis) {
+    return new FlavorCache(
+        new FlavorCache.FlavorSource() {
+          @Override
+          public Collection<DeploymentFlavour> listFlavors(VimInstance vimInstance) {
+            listings.incrementAndGet();
+            List<DeploymentFlavour> listed = new ArrayList<>(flavors);
+            if (whileListing != null) {
+              Runnable listingHook = whileListing;
+              whileListing = null;
+              listingHook.run();
+            }
+            return listed;
+          }
+        },
+        new Executor() {
+          @Override
+          public void execute(Runnable refresh) {
+            refreshes.add(refresh);
+          }
+        },
+        ttlMillis);
+  }
+
+  @Test
+  public void testLookupsByIdAndName() throws Exception {
+    FlavorCache cache = createCache(60000);
+    FlavorCatalog catalog = cache.get(vimInstance);
+    Assert.assertEquals("m1.small", catalog.getById("flavor_id_1").getFlavour_key());
+    Assert.assertEquals("flavor_id_1", catalog.getByName("m1.small").getExtId());
+    Assert.assertNull(catalog.getById("not_existing_flavor_id"));
+    // the returned flavors are copies
+    Assert.assertNotSame(catalog.getById("flavor_id_1"), catalog.getById("flavor_id_1"));
+    cache.get(vimInstance);
+    Assert.assertEquals(1, listings.get());
+    Assert.assertTrue(refreshes.isEmpty());
+  }
+
+  @Test
+  public void testExpiredCatalogIsRefreshedInBackground() throws Exception {
+    FlavorCache cache = createCache(0);
+    cache.get(vimInstance);
+    flavors.add(createFlavor("flavor_id_2", "m1.large"));
+    // the expired catalog is returned while one refresh is pending
+    Assert.assertNull(cache.get(vimInstance).getById("flavor_id_2"));
+    Assert.assertNull(cache.get(vimInstance).getById("flavor_id_2"));
+    Assert.assertEquals(1, refreshes.size());
+    refreshes.get(0).run();
+    Assert.assertEquals("m1.large", cache.get(vimInstance).getById("flavor_id_2").getFlavour_key());
+  }
+
+  @Test
+  public void testInvalidateReloads() throws Exception {
+    FlavorCache cache = createCache(60000);
+    cache.get(vimInstance);
+    flavors.add(createFlavor("flavor_id_2", "m1.large"));
+    cache.invalidate(vimInstance);
+    Assert.assertEquals(2, cache.get(vimInstance).size());
+    Assert.assertEquals(2, listings.get());
+  }
+
+  @Test
+  public void testLoadRacingWithInvalidateIsNotCached() throws Exception {
+    final FlavorCache cache = createCache(60000);
+    // a flavor is added and the catalog invalidated while the first load is listing
+    whileListing =
+        new Runnable() {
+          @Override
+          public void run() {
+            flavors.add(createFlavor("flavor_id_2", "m1.large"));
+            cache.invalidate(vimInstance);
+          }
+        };
+    Assert.assertEquals(1, cache.get(vimInstance).size());
+    Assert.assertEquals(2, cache.get(vimInstance).size());
+    Assert.assertEquals(2, listings.get());
+  }
+}
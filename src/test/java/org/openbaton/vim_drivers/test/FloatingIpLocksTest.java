@@ -0,0 +1,111 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.vim_drivers.test;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.clients.interfaces.client.openstack.FloatingIpLocks;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+
+public class FloatingIpLocksTest {
+
+  private final FloatingIpLocks locks = new FloatingIpLocks(256);
+  private ExecutorService otherThread;
+
+  @Before
+  public void init() {
+    otherThread = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void shutdown() {
+    otherThread.shutdownNow();
+  }
+
+  private VimInstance createVimInstance(String authUrl, String tenant) {
+    VimInstance vimInstance = new VimInstance();
+    vimInstance.setName("mocked_vim_instance");
+    vimInstance.setAuthUrl(authUrl);
+    vimInstance.setTenant(tenant);
+    vimInstance.setUsername("mocked_user");
+    vimInstance.setPassword("mocked_password");
+    return vimInstance;
+  }
+
+  /**
+   * Tries to take the lock of the VimInstance from another thread, releasing it again if it got it.
+   */
+  private boolean lockableByOtherThread(final VimInstance vimInstance) throws Exception {
+    return otherThread
+        .submit(
+            new Callable<Boolean>() {
+              @Override
+              public Boolean call() {
+                Lock lock = locks.get(vimInstance);
+                if (!lock.tryLock()) {
+                  return false;
+                }
+                lock.unlock();
+                return true;
+              }
+            })
+        .get();
+  }
+
+  @Test
+  public void testOneTenantIsSerialized() throws Exception {
+    VimInstance vimInstance = createVimInstance("http://mocked_auth_url:5000/v2.0", "tenant_a");
+    Lock lock = locks.get(vimInstance);
+    lock.lock();
+    try {
+      // another VimInstance of the same endpoint and tenant waits as well
+      Assert.assertFalse(
+          lockableByOtherThread(createVimInstance("http://mocked_auth_url:5000/v2.0", "tenant_a")));
+      // the lock is reentrant
+      Assert.assertTrue(locks.get(vimInstance).tryLock());
+      locks.get(vimInstance).unlock();
+    } finally {
+      lock.unlock();
+    }
+    Assert.assertTrue(lockableByOtherThread(vimInstance));
+  }
+
+  @Test
+  public void testTenantsAndCloudsAssignInParallel() throws Exception {
+    Lock lock = locks.get(createVimInstance("http://mocked_auth_url:5000/v2.0", "tenant_a"));
+    lock.lock();
+    try {
+      Assert.assertTrue(
+          lockableByOtherThread(createVimInstance("http://mocked_auth_url:5000/v2.0", "tenant_b")));
+      Assert.assertTrue(
+          lockableByOtherThread(createVimInstance("http://other_auth_url:5000/v2.0", "tenant_a")));
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.vim_drivers.test;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbaton.clients.interfaces.client.openstack.FloatingIpLedger;
+import org.openbaton.clients.interfaces.client.openstack.FloatingIpReservoir;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class FloatingIpReservoirTest {
+
+  private final Set<String> free = new LinkedHashSet<>();
+  private int allocated;
+  private int listings;
+  private FloatingIpReservoir reservoir;
+
+  @Before
+  public void init() {
+    reservoir =
+        new FloatingIpReservoir(
+            new FloatingIpReservoir.Source() {
+              @Override
+              public Collection<String> listFree() {
+                listings++;
+                return new ArrayList<>(free);
+              }
+
+              @Override
+              public void allocate(int count) {
+                for (int i = 0; i < count; i++) {
+                  free.add("10.0.0." + (100 + allocated++));
+                }
+              }
+            },
+            MoreExecutors.sameThreadExecutor(),
+            2,
+            0);
+  }
+
+  @Test
+  public void testRefillAllocatesUpToLowWaterMark() {
+    free.add("10.0.0.1");
+    reservoir.refillAsync();
+    Assert.assertEquals(1, allocated);
+    Assert.assertEquals(2, reservoir.size());
+  }
+
+  @Test
+  public void testClaimedAddressIsNotHandedOutAgain() {
+    reservoir.refillAsync();
+    String first = reservoir.claim();
+    // the claim triggered a refill, the claimed address is still listed free
+    String second = reservoir.claim();
+    Assert.assertNotNull(first);
+    Assert.assertNotNull(second);
+    Assert.assertNotEquals(first, second);
+    Assert.assertEquals(2, reservoir.size());
+  }
+
+  @Test
+  public void testReleasedAddressIsClaimable() {
+    free.add("10.0.0.1");
+    free.add("10.0.0.2");
+    reservoir.refillAsync();
+    String claimed = reservoir.claim();
+    // the claim allocated one more to get back to the low-water mark
+    Assert.assertEquals(2, reservoir.size());
+    reservoir.release(claimed);
+    Assert.assertEquals(3, reservoir.size());
+  }
+
+  @Test
+  public void testAssociatedAddressIsDropped() {
+    free.add("10.0.0.1");
+    free.add("10.0.0.2");
+    reservoir.refillAsync();
+    String claimed = reservoir.claim();
+    free.remove(claimed);
+    // the refill sees the claimed address associated and keeps the other one
+    reservoir.refillAsync();
+    reservoir.release(claimed);
+    Assert.assertEquals(2, reservoir.size());
+    Assert.assertFalse(claimed.equals(reservoir.claim()) || claimed.equals(reservoir.claim()));
+  }
+
+  @Test
+  public void testReservedAddressIsNotClaimed() {
+    free.add("10.0.0.1");
+    free.add("10.0.0.2");
+    reservoir.refillAsync();
+    Assert.assertTrue(reservoir.reserve("10.0.0.1"));
+    Assert.assertFalse(reservoir.reserve("10.0.0.1"));
+    Assert.assertEquals("10.0.0.2", reservoir.claim());
+  }
+
+  @Test
+  public void testLedgerReleasesStaleClaims() throws Exception {
+    FloatingIpLedger ledger = new FloatingIpLedger(50);
+    Assert.assertTrue(ledger.claim("10.0.0.1"));
+    Assert.assertTrue(ledger.claim("10.0.0.2"));
+    Assert.assertFalse(ledger.claim("10.0.0.1"));
+    // 10.0.0.2 got associated
+    ledger.reconcile(Collections.singleton("10.0.0.1"), System.currentTimeMillis());
+    Assert.assertTrue(ledger.isClaimed("10.0.0.1"));
+    Assert.assertFalse(ledger.isClaimed("10.0.0.2"));
+    Thread.sleep(100);
+    // 10.0.0.1 is still free after the claim timeout
+    ledger.reconcile(Collections.singleton("10.0.0.1"), System.currentTimeMillis());
+    Assert.assertEquals(0, ledger.size());
+  }
+
+  @Test
+  public void testLedgerIgnoresListingsOlderThanTheClaim() throws Exception {
+    FloatingIpLedger ledger = new FloatingIpLedger(50);
+    long listedAt = System.currentTimeMillis();
+    Thread.sleep(10);
+    Assert.assertTrue(ledger.claim("10.0.0.1"));
+    // a listing taken before the claim neither sees the association nor the timeout
+    ledger.reconcile(Collections.<String>emptySet(), listedAt);
+    ledger.reconcile(Collections.singleton("10.0.0.1"), listedAt - 1000);
+    Assert.assertTrue(ledger.isClaimed("10.0.0.1"));
+    ledger.reconcile(Collections.<String>emptySet(), System.currentTimeMillis());
+    Assert.assertFalse(ledger.isClaimed("10.0.0.1"));
+  }
+
+  @Test
+  public void testReservoirIgnoresStaleListings() {
+    free.add("10.0.0.1");
+    reservoir.refillAsync();
+    Assert.assertEquals(2, reservoir.size());
+    // both got associated by somebody else, an older listing must not offer them again
+    reservoir.reconcile(Collections.<String>emptySet(), System.currentTimeMillis());
+    reservoir.reconcile(free, System.currentTimeMillis() - 1000);
+    Assert.assertEquals(0, reservoir.size());
+  }
+
+  @Test
+  public void testClaimOrAllocateOnEmptyReservoir() {
+    FloatingIpReservoir empty =
+        new FloatingIpReservoir(
+            new FloatingIpReservoir.Source() {
+              @Override
+              public Collection<String> listFree() {
+                return new ArrayList<>(free);
+              }
+
+              @Override
+              public void allocate(int count) {
+                free.add("10.0.0.200");
+              }
+            },
+            MoreExecutors.sameThreadExecutor(),
+            0,
+            0);
+    Assert.assertNull(empty.claim());
+    Assert.assertEquals("10.0.0.200", empty.claimOrAllocate());
+  }
+}
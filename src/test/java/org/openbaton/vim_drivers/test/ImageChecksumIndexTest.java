@@ -0,0 +1,85 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.vim_drivers.test;
+
+import org.jclouds.openstack.glance.v1_0.domain.ContainerFormat;
+import org.jclouds.openstack.glance.v1_0.domain.DiskFormat;
+import org.jclouds.openstack.glance.v1_0.domain.Image;
+import org.jclouds.openstack.glance.v1_0.domain.ImageDetails;
+import org.junit.Assert;
+import org.junit.Test;
+import org.openbaton.clients.interfaces.client.openstack.ImageChecksumIndex;
+
+import java.util.Arrays;
+import java.util.Date;
+
+public class ImageChecksumIndexTest {
+
+  private static final String CHECKSUM = "95bb4f930d7f14615cd5af49c1af76af";
+
+  private static ImageDetails createImage(String id, String owner, boolean isPublic) {
+    return ImageDetails.builder()
+        .id(id)
+        .name("mocked_image_name")
+        .checksum(CHECKSUM)
+        .diskFormat(DiskFormat.QCOW2)
+        .containerFormat(ContainerFormat.BARE)
+        .owner(owner)
+        .isPublic(isPublic)
+        .status(Image.Status.ACTIVE)
+        .createdAt(new Date())
+        .updatedAt(new Date())
+        .build();
+  }
+
+  @Test
+  public void testImageOfTheTenantIsFound() {
+    ImageChecksumIndex index =
+        new ImageChecksumIndex(Arrays.asList(createImage("mocked_image_id", "tenant_a", false)));
+    ImageDetails found = index.find(CHECKSUM.toUpperCase(), "qcow2", "bare", "tenant_a", false);
+    Assert.assertEquals("mocked_image_id", found.getId());
+  }
+
+  @Test
+  public void testImagesOfOtherTenantsAreNotFound() {
+    // a public image of another tenant has the same content
+    ImageChecksumIndex index =
+        new ImageChecksumIndex(Arrays.asList(createImage("mocked_image_id", "tenant_b", true)));
+    Assert.assertNull(index.find(CHECKSUM, "QCOW2", "BARE", "tenant_a", true));
+    Assert.assertNull(index.find(CHECKSUM, "QCOW2", "BARE", null, true));
+  }
+
+  @Test
+  public void testVisibilityMustMatch() {
+    ImageChecksumIndex index =
+        new ImageChecksumIndex(
+            Arrays.asList(
+                createImage("mocked_private_image_id", "tenant_a", false),
+                createImage("mocked_public_image_id", "tenant_a", true)));
+    Assert.assertEquals(
+        "mocked_private_image_id",
+        index.find(CHECKSUM, "QCOW2", "BARE", "tenant_a", false).getId());
+    Assert.assertEquals(
+        "mocked_public_image_id", index.find(CHECKSUM, "QCOW2", "BARE", "tenant_a", true).getId());
+    index.remove("mocked_public_image_id");
+    Assert.assertNull(index.find(CHECKSUM, "QCOW2", "BARE", "tenant_a", true));
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.vim_drivers.test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.jclouds.openstack.glance.v1_0.domain.Image;
+import org.jclouds.openstack.glance.v1_0.domain.ImageDetails;
+import org.jclouds.openstack.glance.v1_0.features.ImageApi;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.clients.interfaces.client.openstack.ImageImportTracker;
+import org.openbaton.clients.interfaces.client.openstack.ImagePager;
+import org.openbaton.clients.interfaces.client.openstack.WaitPolicy;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ImageImportTrackerTest {
+
+  private ScheduledExecutorService scheduler;
+  private ImageImportTracker tracker;
+  private final List<ImageDetails> images = new CopyOnWriteArrayList<>();
+  private final AtomicInteger listings = new AtomicInteger();
+  private VimInstance vimInstance;
+
+  @Before
+  public void init() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    tracker =
+        new ImageImportTracker(
+            new ImageImportTracker.ImageSource() {
+              @Override
+              public Iterable<ImageDetails> listImages(VimInstance vimInstance, Date changedSince) {
+                listings.incrementAndGet();
+                return new ArrayList<>(images);
+              }
+            },
+            scheduler,
+            MoreExecutors.sameThreadExecutor(),
+            new WaitPolicy(50, 50, 1, 0),
+            60000);
+    vimInstance = VimPollerTest.mockVimInstance();
+  }
+
+  @After
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  private ImageDetails mockImage(String id, Image.Status status) {
+    ImageDetails image = mock(ImageDetails.class);
+    when(image.getId()).thenReturn(id);
+    when(image.getStatus()).thenReturn(status);
+    return image;
+  }
+
+  @Test
+  public void testTrackingAgainReturnsTheSameFuture() throws Exception {
+    images.add(mockImage("image_1", Image.Status.SAVING));
+    ListenableFuture<ImageDetails> first = tracker.track(vimInstance, "image_1", 0);
+    Assert.assertSame(first, tracker.track(vimInstance, "image_1", 0));
+    Assert.assertEquals(1, tracker.getPendingCount(vimInstance));
+    first.cancel(false);
+  }
+
+  @Test
+  public void testImportOnALaterPageIsSeen() throws Exception {
+    List<ImageDetails> changed = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      changed.add(mockImage("changed_image_" + i, Image.Status.ACTIVE));
+    }
+    changed.add(mockImage("imported_image", Image.Status.ACTIVE));
+    final List<String> markers = new ArrayList<>();
+    final ImageApi imageApi = ImagePagerTest.pagedImageApi(changed, markers);
+    ImageImportTracker pagingTracker =
+        new ImageImportTracker(
+            new ImageImportTracker.ImageSource() {
+              @Override
+              public Iterable<ImageDetails> listImages(VimInstance vimInstance, Date changedSince) {
+                return new ImagePager(imageApi, 2, changedSince);
+              }
+            },
+            scheduler,
+            MoreExecutors.sameThreadExecutor(),
+            new WaitPolicy(50, 50, 1, 0),
+            60000);
+    ListenableFuture<ImageDetails> imported = pagingTracker.track(vimInstance, "imported_image", 0);
+    Assert.assertEquals("imported_image", imported.get(5, TimeUnit.SECONDS).getId());
+    Assert.assertTrue(markers.contains("changed_image_3"));
+  }
+
+  @Test
+  public void testFinishedImportIsRemembered() throws Exception {
+    images.add(mockImage("image_1", Image.Status.ACTIVE));
+    tracker.track(vimInstance, "image_1", 0).get(5, TimeUnit.SECONDS);
+    int listingsBefore = listings.get();
+    ListenableFuture<ImageDetails> again = tracker.track(vimInstance, "image_1", 0);
+    Assert.assertTrue(again.isDone());
+    Assert.assertEquals("image_1", again.get().getId());
+    Assert.assertEquals(listingsBefore, listings.get());
+  }
+
+  @Test
+  public void testKilledImportFails() throws Exception {
+    images.add(mockImage("killed_image", Image.Status.KILLED));
+    ListenableFuture<ImageDetails> killed = tracker.track(vimInstance, "killed_image", 0);
+    try {
+      killed.get(5, TimeUnit.SECONDS);
+      Assert.fail("A killed import must fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause().getMessage().contains("KILLED"));
+    }
+  }
+
+  @Test
+  public void testImportTimesOut() throws Exception {
+    images.add(mockImage("stuck_image", Image.Status.SAVING));
+    ListenableFuture<ImageDetails> stuck = tracker.track(vimInstance, "stuck_image", 300);
+    try {
+      stuck.get(5, TimeUnit.SECONDS);
+      Assert.fail("Waiting for a stuck import must time out");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause().getMessage().startsWith("Timed out"));
+      Assert.assertTrue(e.getCause().getMessage().contains("Image with ExtId: stuck_image"));
+    }
+  }
+}
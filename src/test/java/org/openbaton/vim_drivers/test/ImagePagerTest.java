@@ -0,0 +1,156 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.vim_drivers.test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
+
+import org.jclouds.openstack.glance.v1_0.domain.ImageDetails;
+import org.jclouds.openstack.glance.v1_0.features.ImageApi;
+import org.jclouds.openstack.glance.v1_0.options.ListImageOptions;
+import org.jclouds.openstack.v2_0.domain.Link;
+import org.jclouds.openstack.v2_0.domain.PaginatedCollection;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openbaton.clients.interfaces.client.openstack.ImagePager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ImagePagerTest {
+
+  private ImageApi imageApi;
+  private final List<String> markers = new ArrayList<>();
+
+  @Before
+  public void init() {
+    imageApi =
+        pagedImageApi(
+            Arrays.asList(mockImage("image_1"), mockImage("image_2"), mockImage("image_3")),
+            markers);
+  }
+
+  /**
+   * Returns an ImageApi serving the images in pages after the ID given as marker, like Glance v1
+   * without next links. The markers it was asked for are added to the given list.
+   */
+  static ImageApi pagedImageApi(List<ImageDetails> images, List<String> markers) {
+    return pagedImageApi(images, markers, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns an ImageApi like {@link #pagedImageApi(List, List)} which serves at most the given
+   * number of images per page, like Glance with its api_limit_max.
+   */
+  static ImageApi pagedImageApi(
+      final List<ImageDetails> images, final List<String> markers, final int maxLimit) {
+    ImageApi imageApi = mock(ImageApi.class);
+    when(imageApi.listInDetail(any(ListImageOptions.class)))
+        .thenAnswer(
+            new Answer<PaginatedCollection<ImageDetails>>() {
+              @Override
+              public PaginatedCollection<ImageDetails> answer(InvocationOnMock invocation) {
+                Multimap<String, String> query =
+                    ((ListImageOptions) invocation.getArguments()[0]).buildQueryParameters();
+                int limit =
+                    Math.min(
+                        maxLimit, Integer.parseInt(Iterables.getOnlyElement(query.get("limit"))));
+                int from = 0;
+                if (query.containsKey("marker")) {
+                  String marker = Iterables.getOnlyElement(query.get("marker"));
+                  markers.add(marker);
+                  from = ids(images).indexOf(marker) + 1;
+                }
+                return new Page(images.subList(from, Math.min(from + limit, images.size())));
+              }
+            });
+    return imageApi;
+  }
+
+  private static ImageDetails mockImage(String id) {
+    ImageDetails image = mock(ImageDetails.class);
+    when(image.getId()).thenReturn(id);
+    return image;
+  }
+
+  private static class Page extends PaginatedCollection<ImageDetails> {
+    private Page(List<ImageDetails> images) {
+      super(ImmutableList.copyOf(images), Collections.<Link>emptySet());
+    }
+  }
+
+  private static List<String> ids(Iterable<ImageDetails> images) {
+    List<String> ids = new ArrayList<>();
+    for (ImageDetails image : images) {
+      ids.add(image.getId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void testPagesFollowTheLastImage() {
+    Assert.assertEquals(
+        Arrays.asList("image_1", "image_2", "image_3"), ids(new ImagePager(imageApi, 2, null)));
+    Assert.assertEquals(Arrays.asList("image_2", "image_3"), markers);
+  }
+
+  @Test
+  public void testFullLastPageEndsWithAnEmptyPage() {
+    Assert.assertEquals(
+        Arrays.asList("image_1", "image_2", "image_3"), ids(new ImagePager(imageApi, 3, null)));
+    Assert.assertEquals(Collections.singletonList("image_3"), markers);
+  }
+
+  @Test
+  public void testSinglePage() {
+    Assert.assertEquals(3, ids(new ImagePager(imageApi, 200, null)).size());
+    Assert.assertEquals(Collections.singletonList("image_3"), markers);
+  }
+
+  @Test
+  public void testPagesCappedByGlanceAreFollowed() {
+    // Glance serves at most 2 images per page although 200 are requested
+    imageApi =
+        pagedImageApi(
+            Arrays.asList(mockImage("image_1"), mockImage("image_2"), mockImage("image_3")),
+            markers,
+            2);
+    Assert.assertEquals(
+        Arrays.asList("image_1", "image_2", "image_3"), ids(new ImagePager(imageApi, 200, null)));
+    Assert.assertEquals(Arrays.asList("image_2", "image_3"), markers);
+  }
+
+  @Test
+  public void testStoppingEarlyDoesNotListTheRemainingPages() {
+    Assert.assertEquals("image_1", new ImagePager(imageApi, 1, null).iterator().next().getId());
+    Assert.assertTrue(markers.isEmpty());
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.vim_drivers.test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.Utils;
+import org.jclouds.domain.Credentials;
+import org.jclouds.openstack.keystone.v2_0.domain.Access;
+import org.jclouds.openstack.keystone.v2_0.domain.Tenant;
+import org.jclouds.openstack.keystone.v2_0.domain.Token;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.clients.interfaces.client.openstack.KeystoneTokenCache;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Date;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ContextBuilder.class})
+public class KeystoneTokenCacheTest {
+
+  private KeystoneTokenCache tokenCache;
+  private ScheduledExecutorService scheduler;
+  private ComputeServiceContext context;
+  private Function<Credentials, Access> auth;
+  private VimInstance vimInstance;
+
+  @Before
+  public void init() throws Exception {
+    PowerMockito.spy(ContextBuilder.class);
+    ContextBuilder contextBuilder = mock(ContextBuilder.class);
+    PowerMockito.doReturn(contextBuilder)
+        .when(ContextBuilder.class, "newBuilder", Mockito.anyString());
+    when(contextBuilder.endpoint(anyString())).thenReturn(contextBuilder);
+    when(contextBuilder.credentials(anyString(), anyString())).thenReturn(contextBuilder);
+    context = mock(ComputeServiceContext.class);
+    when(contextBuilder.buildView(ComputeServiceContext.class)).thenReturn(context);
+    Utils utils = mock(Utils.class);
+    when(context.utils()).thenReturn(utils);
+    Injector injector = mock(Injector.class);
+    when(utils.injector()).thenReturn(injector);
+    auth = mock(Function.class);
+    when(injector.getInstance(any(Key.class))).thenReturn(auth);
+
+    scheduler = mock(ScheduledExecutorService.class);
+    tokenCache = new KeystoneTokenCache(scheduler, 300, 60, 600);
+
+    vimInstance = new VimInstance();
+    vimInstance.setName("mocked_vim_instance");
+    vimInstance.setAuthUrl("http://mocked_auth_url:5000/v2.0");
+    vimInstance.setTenant("mocked_tenant");
+    vimInstance.setUsername("mocked_user");
+    vimInstance.setPassword("mocked_password");
+  }
+
+  private Access mockAccess(long expiresInMillis) {
+    Access access = mock(Access.class);
+    Token token = mock(Token.class);
+    when(access.getToken()).thenReturn(token);
+    when(token.getExpires()).thenReturn(new Date(System.currentTimeMillis() + expiresInMillis));
+    Tenant tenant = mock(Tenant.class);
+    when(tenant.getId()).thenReturn("mocked_tenant_id");
+    when(token.getTenant()).thenReturn(Optional.of(tenant));
+    return access;
+  }
+
+  @Test
+  public void testAccessIsReused() throws Exception {
+    Access access = mockAccess(3600000);
+    when(auth.apply(any(Credentials.class))).thenReturn(access);
+    Assert.assertSame(access, tokenCache.getAccess(vimInstance));
+    Assert.assertSame(access, tokenCache.getAccess(vimInstance));
+    Assert.assertSame(access, tokenCache.getCachedAccess(vimInstance));
+    verify(auth, times(1)).apply(any(Credentials.class));
+  }
+
+  @Test
+  public void testExpiringAccessIsRenewed() throws Exception {
+    Access expiring = mockAccess(30000);
+    Access renewed = mockAccess(3600000);
+    when(auth.apply(any(Credentials.class))).thenReturn(expiring, renewed);
+    Assert.assertSame(expiring, tokenCache.getAccess(vimInstance));
+    Assert.assertNull(tokenCache.getCachedAccess(vimInstance));
+    Assert.assertSame(renewed, tokenCache.getAccess(vimInstance));
+  }
+
+  @Test
+  public void testAccessIsRefreshedAheadOfExpiry() throws Exception {
+    Access access = mockAccess(3600000);
+    Access refreshed = mockAccess(7200000);
+    when(auth.apply(any(Credentials.class))).thenReturn(access, refreshed);
+    tokenCache.getAccess(vimInstance);
+
+    ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+    ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+    verify(scheduler).schedule(refresh.capture(), delay.capture(), eq(TimeUnit.MILLISECONDS));
+    Assert.assertTrue(delay.getValue() <= 3300000);
+    refresh.getValue().run();
+    Assert.assertSame(refreshed, tokenCache.getCachedAccess(vimInstance));
+    verify(auth, times(2)).apply(any(Credentials.class));
+  }
+
+  @Test
+  public void testShortLivedAccessIsNotRefreshedInALoop() throws Exception {
+    Access access = mockAccess(120000);
+    Access shortLived = mockAccess(10000);
+    when(auth.apply(any(Credentials.class))).thenReturn(access, shortLived);
+    tokenCache.getAccess(vimInstance);
+
+    ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+    ArgumentCaptor<Long> delay = ArgumentCaptor.forClass(Long.class);
+    verify(scheduler).schedule(refresh.capture(), delay.capture(), eq(TimeUnit.MILLISECONDS));
+    Assert.assertTrue(delay.getValue() >= 55000);
+    Assert.assertTrue(delay.getValue() <= 60000);
+
+    refresh.getValue().run();
+    verify(scheduler, times(2))
+        .schedule(refresh.capture(), delay.capture(), eq(TimeUnit.MILLISECONDS));
+    Assert.assertEquals(30000, delay.getValue().longValue());
+    verify(auth, times(2)).apply(any(Credentials.class));
+  }
+
+  @Test
+  public void testTenantIdIsTakenFromCachedAccess() throws Exception {
+    Access access = mockAccess(3600000);
+    when(auth.apply(any(Credentials.class))).thenReturn(access);
+    tokenCache.getAccess(vimInstance);
+    Assert.assertEquals("mocked_tenant_id", tokenCache.getTenantId(vimInstance));
+    Assert.assertEquals("mocked_tenant_id", tokenCache.getTenantId(vimInstance));
+    verify(auth, times(1)).apply(any(Credentials.class));
+  }
+
+  @Test
+  public void testInvalidateClosesContext() throws Exception {
+    Access access = mockAccess(3600000);
+    when(auth.apply(any(Credentials.class))).thenReturn(access);
+    tokenCache.getAccess(vimInstance);
+    tokenCache.invalidate(vimInstance);
+    verify(context).close();
+    Assert.assertNull(tokenCache.getCachedAccess(vimInstance));
+  }
+}
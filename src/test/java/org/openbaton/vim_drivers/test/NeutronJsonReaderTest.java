@@ -0,0 +1,76 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.vim_drivers.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openbaton.clients.interfaces.client.openstack.FloatingIpIndex;
+import org.openbaton.clients.interfaces.client.openstack.NeutronJsonReader;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+public class NeutronJsonReaderTest {
+
+  @Test
+  public void testReadFloatingIpsOfTenant() throws Exception {
+    String response =
+        "{\"floatingips\": ["
+            + "{\"router_id\": null, \"tenant_id\": \"tenant_1\", \"floating_network_id\": \"net\","
+            + " \"fixed_ip_address\": \"192.168.0.5\", \"floating_ip_address\": \"172.24.4.10\","
+            + " \"port_id\": \"port_1\", \"id\": \"fip_1\", \"status\": \"ACTIVE\"},"
+            + "{\"tenant_id\": \"tenant_1\", \"fixed_ip_address\": null,"
+            + " \"floating_ip_address\": \"172.24.4.11\", \"port_id\": null, \"id\": \"fip_2\"},"
+            + "{\"tenant_id\": \"tenant_2\", \"fixed_ip_address\": null,"
+            + " \"floating_ip_address\": \"172.24.4.12\", \"port_id\": null, \"id\": \"fip_3\"}"
+            + "]}";
+    List<FloatingIpIndex.Entry> entries =
+        NeutronJsonReader.readFloatingIps(new StringReader(response), "tenant_1");
+    Assert.assertEquals(2, entries.size());
+    Assert.assertEquals("fip_1", entries.get(0).getId());
+    Assert.assertEquals("172.24.4.10", entries.get(0).getAddress());
+    Assert.assertEquals("port_1", entries.get(0).getPortId());
+    Assert.assertEquals("192.168.0.5", entries.get(0).getFixedIpAddress());
+    Assert.assertTrue(entries.get(1).isFree());
+
+    Assert.assertEquals(
+        3, NeutronJsonReader.readFloatingIps(new StringReader(response), null).size());
+  }
+
+  @Test
+  public void testReadPortIdsByFixedIp() throws Exception {
+    String response =
+        "{\"ports\": ["
+            + "{\"id\": \"port_1\", \"name\": \"\", \"allowed_address_pairs\": [],"
+            + " \"fixed_ips\": [{\"subnet_id\": \"subnet_1\", \"ip_address\": \"192.168.0.5\"},"
+            + " {\"subnet_id\": \"subnet_2\", \"ip_address\": \"10.0.0.5\"}]},"
+            + "{\"fixed_ips\": [{\"subnet_id\": \"subnet_1\", \"ip_address\": \"192.168.0.6\"}],"
+            + " \"id\": \"port_2\"}"
+            + "], \"ports_links\": []}";
+    Map<String, String> ports = NeutronJsonReader.readPortIdsByFixedIp(new StringReader(response));
+    Assert.assertEquals(3, ports.size());
+    Assert.assertEquals("port_1", ports.get("192.168.0.5"));
+    Assert.assertEquals("port_1", ports.get("10.0.0.5"));
+    Assert.assertEquals("port_2", ports.get("192.168.0.6"));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.vim_drivers.test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Module;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.openstack.nova.v2_0.NovaApi;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.clients.interfaces.client.openstack.OpenstackApiRegistry;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.Properties;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ContextBuilder.class})
+public class OpenstackApiRegistryTest {
+
+  private OpenstackApiRegistry registry;
+  private ContextBuilder contextBuilder;
+  private VimInstance vimInstance;
+
+  @Before
+  public void init() throws Exception {
+    PowerMockito.spy(ContextBuilder.class);
+    contextBuilder = mock(ContextBuilder.class);
+    PowerMockito.doReturn(contextBuilder)
+        .when(ContextBuilder.class, "newBuilder", Mockito.anyString());
+    when(contextBuilder.endpoint(anyString())).thenReturn(contextBuilder);
+    when(contextBuilder.credentials(anyString(), anyString())).thenReturn(contextBuilder);
+    when(contextBuilder.modules(any(Iterable.class))).thenReturn(contextBuilder);
+    when(contextBuilder.overrides(any(Properties.class))).thenReturn(contextBuilder);
+    when(contextBuilder.buildApi(NovaApi.class))
+        .thenReturn(mock(NovaApi.class), mock(NovaApi.class));
+
+    registry = new OpenstackApiRegistry(ImmutableSet.<Module>of(), new Properties(), 600);
+
+    vimInstance = new VimInstance();
+    vimInstance.setId("mocked_vim_id");
+    vimInstance.setName("mocked_vim_instance");
+    vimInstance.setAuthUrl("http://mocked_auth_url:5000/v2.0");
+    vimInstance.setTenant("mocked_tenant");
+    vimInstance.setUsername("mocked_user");
+    vimInstance.setPassword("mocked_password");
+  }
+
+  @Test
+  public void testApiIsBuiltOnce() throws Exception {
+    NovaApi novaApi = registry.getNovaApi(vimInstance);
+    Assert.assertSame(novaApi, registry.getNovaApi(vimInstance));
+    verify(contextBuilder, times(1)).buildApi(NovaApi.class);
+    verify(novaApi, never()).close();
+  }
+
+  @Test
+  public void testChangedCredentialsRebuildApi() throws Exception {
+    NovaApi oldNovaApi = registry.getNovaApi(vimInstance);
+    vimInstance.setPassword("changed_password");
+    NovaApi newNovaApi = registry.getNovaApi(vimInstance);
+    Assert.assertNotSame(oldNovaApi, newNovaApi);
+    verify(oldNovaApi).close();
+  }
+
+  @Test
+  public void testInvalidateClosesApi() throws Exception {
+    NovaApi novaApi = registry.getNovaApi(vimInstance);
+    registry.invalidate(vimInstance);
+    verify(novaApi).close();
+    Assert.assertNotSame(novaApi, registry.getNovaApi(vimInstance));
+  }
+}
@@ -23,6 +23,7 @@ package org.openbaton.vim_drivers.test;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.collect.*;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Injector;
 import com.google.inject.Key;
 import org.hibernate.mapping.*;
@@ -34,6 +35,7 @@ import org.jclouds.collect.PagedIterables;
 import org.jclouds.compute.ComputeServiceContext;
 import org.jclouds.compute.Utils;
 import org.jclouds.domain.Credentials;
+import org.jclouds.http.HttpResponseException;
 import org.jclouds.io.Payload;
 import org.jclouds.javax.annotation.Nullable;
 import org.jclouds.openstack.glance.v1_0.GlanceApi;
@@ -68,8 +70,11 @@ import org.junit.*;
 import org.junit.Rule;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.openbaton.catalogue.mano.common.DeploymentFlavour;
 import org.openbaton.catalogue.mano.descriptor.VNFDConnectionPoint;
 import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
@@ -79,11 +84,14 @@ import org.openbaton.catalogue.nfvo.Network;
 import org.openbaton.catalogue.nfvo.Quota;
 import org.openbaton.catalogue.nfvo.Server;
 import org.openbaton.catalogue.nfvo.Subnet;
+import org.openbaton.clients.interfaces.client.openstack.InstanceSpec;
 import org.openbaton.clients.interfaces.client.openstack.OpenstackClient;
+import org.openbaton.clients.interfaces.client.openstack.RestTransport;
 import org.openbaton.exceptions.VimDriverException;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 import sun.net.www.protocol.http.*;
 import sun.net.www.protocol.http.HttpURLConnection;
 
@@ -95,6 +103,9 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -105,7 +116,7 @@ import static org.mockito.Mockito.*;
  */
 @RunWith(PowerMockRunner.class)
 //@PrepareForTest({ContextBuilder.class, Thread.class, URL.class, OpenstackClient.class})
-@PrepareForTest({ContextBuilder.class, Thread.class, OpenstackClient.class})
+@PrepareForTest({ContextBuilder.class, Thread.class, OpenstackClient.class, RestTransport.class})
 public class OpenstackTest {
 
   OpenstackClient openstackClient;
@@ -254,6 +265,12 @@ public class OpenstackTest {
     }
   }
 
+  private class MyPaginatedCollection<T> extends PaginatedCollection<T> {
+    protected MyPaginatedCollection(Iterable<T> resources) {
+      super(resources, new HashSet<Link>());
+    }
+  }
+
   private class MyImageDetails extends ImageDetails {
     protected MyImageDetails(
         String id,
@@ -430,6 +447,11 @@ public class OpenstackTest {
   private MyFloatingIPs expFloatingIPs;
   private MyQuota expQuota;
   private MyPort expPort;
+  private NovaApi novaApi;
+  private ImageApi imageApi;
+  private ImageDetails imageDetails;
+  private org.jclouds.openstack.neutron.v2.extensions.FloatingIPApi neutronFloatingIPApi;
+  private FloatingIPApi floatingIPApi;
 
   @Before
   public void init() throws Exception {
@@ -523,7 +545,7 @@ public class OpenstackTest {
             new ArrayList<BlockDeviceMapping>(),
             expImageResource,
             new HashMap<String, String>());
-    ImageDetails imageDetails =
+    imageDetails =
         new MyImageDetails(
             definedImage.getExtId(),
             definedImage.getName(),
@@ -531,11 +553,11 @@ public class OpenstackTest {
             ContainerFormat.fromValue(definedImage.getContainerFormat()),
             DiskFormat.fromValue(definedImage.getDiskFormat()),
             new Long(1),
-            "mocked_checksum",
+            "95bb4f930d7f14615cd5af49c1af76af",
             definedImage.getMinDiskSpace(),
             definedImage.getMinRam(),
             "mocked_location",
-            "mocked_owner",
+            "mocked_tenant_id",
             definedImage.getUpdated(),
             definedImage.getCreated(),
             new Date(),
@@ -752,7 +774,7 @@ public class OpenstackTest {
     //Neutron API
     NeutronApi neutronApi = mock(NeutronApi.class);
     //Nova API
-    NovaApi novaApi = mock(NovaApi.class);
+    novaApi = mock(NovaApi.class);
     //Glance API
     GlanceApi glanceApi = mock(GlanceApi.class);
 
@@ -826,7 +848,12 @@ public class OpenstackTest {
     when(novaImageApi.get(definedImage.getExtId())).thenReturn(expImage);
     when(novaImageApi.get("error_image_ext_id")).thenThrow(new AuthorizationException());
     when(novaImageApi.get("not_existing_image_ext_id")).thenThrow(new NullPointerException());
-    ImageApi imageApi = mock(ImageApi.class);
+    when(novaImageApi.listInDetail()).thenReturn(mock(PagedIterable.class));
+    when(novaImageApi.listInDetail().concat())
+        .thenReturn(
+            FluentIterable.from(
+                Arrays.<org.jclouds.openstack.nova.v2_0.domain.Image>asList(expImage)));
+    imageApi = mock(ImageApi.class);
     when(novaApi.getImageApi(anyString())).thenReturn(novaImageApi);
     List<ImageDetails> imageDetailsArray = new ArrayList<ImageDetails>();
     imageDetailsArray.add(imageDetails);
@@ -841,7 +868,7 @@ public class OpenstackTest {
     when(imageApi.listInDetail().concat()).thenReturn(imaImageFI);
     PaginatedCollection imagesPaginatedCollection = mock(PaginatedCollection.class);
     when(imageApi.listInDetail(any(ListImageOptions.class)))
-        .thenReturn(mock(PaginatedCollection.class));
+        .thenReturn(new MyPaginatedCollection<ImageDetails>(imageDetailsArray));
     ImmutableList imageImmutableList = ImmutableList.copyOf(imageDetailsArray);
     //        when(imageApi.listInDetail(any(ListImageOptions.class)).toList()).thenReturn(imageImmutableList);
     when(
@@ -852,6 +879,13 @@ public class OpenstackTest {
             imageApi.create(
                 eq("mocked_error_ext_image_id"), any(Payload.class), any(CreateImageOptions.class)))
         .thenThrow(new AuthorizationException());
+    when(
+            imageApi.create(
+                eq("mocked_flaky_image_name"), any(Payload.class), any(CreateImageOptions.class)))
+        .thenThrow(
+            new HttpResponseException(
+                "mocked_connection_reset", null, null, new IOException("mocked_connection_reset")))
+        .thenReturn(imageDetails);
     when(imageApi.reserve(eq(definedImage.getName()), any(CreateImageOptions.class)))
         .thenReturn(imageDetails);
     when(imageApi.reserve(eq("mocked_error_ext_image_id"), any(CreateImageOptions.class)))
@@ -1007,9 +1041,8 @@ public class OpenstackTest {
     when(subnet.getCidr()).thenReturn(definedSubnet.getCidr());
 
     //FloatingIPApi
-    FloatingIPApi floatingIPApi = mock(FloatingIPApi.class);
-    org.jclouds.openstack.neutron.v2.extensions.FloatingIPApi neutronFloatingIPApi =
-        mock(org.jclouds.openstack.neutron.v2.extensions.FloatingIPApi.class);
+    floatingIPApi = mock(FloatingIPApi.class);
+    neutronFloatingIPApi = mock(org.jclouds.openstack.neutron.v2.extensions.FloatingIPApi.class);
     Optional optional = mock(Optional.class);
     when(novaApi.getFloatingIPApi(anyString())).thenReturn(mock(Optional.class));
     when(novaApi.getFloatingIPApi(anyString()).get()).thenReturn(floatingIPApi);
@@ -1060,6 +1093,9 @@ public class OpenstackTest {
     when(service_nova.iterator()).thenReturn(endpoints.iterator());
     when(service_neutron.iterator()).thenReturn(endpoints.iterator());
     when(endpoint.getPublicURL()).thenReturn(new URI("http://mocked_URI"));
+
+    //APIs are cached per VimInstance, drop the ones built with the mocks of other tests
+    openstackClient.invalidate(vimInstance);
   }
 
   @Test
@@ -1186,6 +1222,44 @@ public class OpenstackTest {
             "#userdata");
   }
 
+  @Test
+  public void testLaunchInstanceAsync() throws Exception {
+    ListenableFuture<Server> future =
+        openstackClient.launchInstanceAsync(
+            vimInstance,
+            definedServer.getName(),
+            definedServer.getImage().getExtId(),
+            definedServer.getFlavor().getExtId(),
+            "keypair",
+            new HashSet<VNFDConnectionPoint>(),
+            new HashSet<String>(),
+            "#userdata",
+            null,
+            null);
+    assertEqualsServers(definedServer, future.get(30, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testLaunchInstances() throws Exception {
+    List<InstanceSpec> specs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      specs.add(
+          new InstanceSpec(
+              definedServer.getName(),
+              definedServer.getImage().getExtId(),
+              definedServer.getFlavor().getExtId(),
+              "keypair",
+              new HashSet<VNFDConnectionPoint>(),
+              new HashSet<String>(),
+              "#userdata"));
+    }
+    List<ListenableFuture<Server>> futures = openstackClient.launchInstances(vimInstance, specs);
+    Assert.assertEquals(specs.size(), futures.size());
+    for (ListenableFuture<Server> future : futures) {
+      assertEqualsServers(definedServer, future.get(30, TimeUnit.SECONDS));
+    }
+  }
+
   @Test
   public void testLauchInstanceAndWaitFloatingIp() throws Exception {
     final HttpURLConnection connection = mock(HttpURLConnection.class);
@@ -1228,10 +1302,105 @@ public class OpenstackTest {
     ServerApi serverApi = mock(ServerApi.class);
     when(novaApi.getServerApi(anyString())).thenReturn(serverApi);
     when(serverApi.listInDetail()).thenThrow(new AuthorizationException());
+    openstackClient.invalidate(vimInstance);
     exception.expect(VimDriverException.class);
     List<Server> servers = openstackClient.listServer(vimInstance);
   }
 
+  @Test
+  public void testListServerWithoutResolvingImagesAndFlavors() throws Exception {
+    List<Server> servers = openstackClient.listServer(vimInstance, false);
+    Assert.assertEquals(definedServer.getExtId(), servers.get(0).getExtId());
+    Assert.assertEquals(definedImage.getExtId(), servers.get(0).getImage().getExtId());
+    Assert.assertNull(servers.get(0).getImage().getName());
+    Assert.assertEquals(definedFlavor.getExtId(), servers.get(0).getFlavor().getExtId());
+  }
+
+  @Test
+  public void testZoneIsCached() throws Exception {
+    openstackClient.listNetworks(vimInstance);
+    openstackClient.listNetworks(vimInstance);
+    verify(novaApi, times(1)).getConfiguredRegions();
+
+    Location location = new Location();
+    location.setName("mocked_zone");
+    vimInstance.setLocation(location);
+    openstackClient.listNetworks(vimInstance);
+    openstackClient.listNetworks(vimInstance);
+    verify(novaApi, times(2)).getConfiguredRegions();
+
+    openstackClient.invalidate(vimInstance);
+    openstackClient.listNetworks(vimInstance);
+    verify(novaApi, times(3)).getConfiguredRegions();
+  }
+
+  @Test
+  public void testFloatingIpIndexIsShared() throws Exception {
+    openstackClient.listServer(vimInstance, false);
+    openstackClient.listServer(vimInstance, false);
+    verify(neutronFloatingIPApi, times(1)).list(any(PaginationOptions.class));
+
+    openstackClient.invalidate(vimInstance);
+    openstackClient.listServer(vimInstance, false);
+    verify(neutronFloatingIPApi, times(2)).list(any(PaginationOptions.class));
+  }
+
+  @Test
+  public void testFilteredListingFollowsPages() throws Exception {
+    org.jclouds.openstack.neutron.v2.domain.FloatingIP first =
+        mock(org.jclouds.openstack.neutron.v2.domain.FloatingIP.class);
+    when(first.getTenantId()).thenReturn("mocked_tenant_id");
+    org.jclouds.openstack.neutron.v2.domain.FloatingIP second =
+        mock(org.jclouds.openstack.neutron.v2.domain.FloatingIP.class);
+    when(second.getTenantId()).thenReturn("mocked_tenant_id");
+    Link next =
+        Link.create(
+            Link.Relation.NEXT,
+            new URI("http://mocked_URI/v2.0/floatingips?limit=1&marker=mocked_floating_ip_id"));
+    when(neutronFloatingIPApi.list(any(PaginationOptions.class)))
+        .thenReturn(
+            new MyFloatingIPs(Collections.singleton(first), Collections.singleton(next)),
+            new MyFloatingIPs(Collections.singleton(second), new HashSet<Link>()));
+    openstackClient.listServer(vimInstance, false);
+
+    ArgumentCaptor<PaginationOptions> options = ArgumentCaptor.forClass(PaginationOptions.class);
+    verify(neutronFloatingIPApi, times(2)).list(options.capture());
+    Multimap<String, String> query = options.getAllValues().get(1).buildQueryParameters();
+    Assert.assertEquals(Collections.singleton("mocked_floating_ip_id"), query.get("marker"));
+    Assert.assertEquals(Collections.singleton("1"), query.get("limit"));
+    Assert.assertEquals(Collections.singleton("mocked_tenant_id"), query.get("tenant_id"));
+
+    // the second page was accepted, so the filter is still sent
+    openstackClient.invalidate(vimInstance);
+    openstackClient.listServer(vimInstance, false);
+    verify(neutronFloatingIPApi, times(3)).list(any(PaginationOptions.class));
+  }
+
+  @Test
+  public void testExplicitFloatingIpDoesNotFillTheReservoir() throws Exception {
+    openstackClient.invalidate(vimInstance);
+    final Thread testThread = Thread.currentThread();
+    final AtomicInteger backgroundListings = new AtomicInteger();
+    when(neutronFloatingIPApi.list(any(PaginationOptions.class)))
+        .thenAnswer(
+            new Answer<FloatingIPs>() {
+              @Override
+              public FloatingIPs answer(InvocationOnMock invocation) {
+                if (Thread.currentThread() != testThread) {
+                  backgroundListings.incrementAndGet();
+                }
+                return expFloatingIPs;
+              }
+            });
+    openstackClient.associateFloatingIpToNetwork(
+        vimInstance,
+        definedServer,
+        new AbstractMap.SimpleEntry<>("mocked_network", "192.168.0.10"));
+    // a refill of the reservoir would list the free FloatingIPs and allocate the missing ones
+    verify(floatingIPApi, after(1000).never()).allocateFromPool(anyString());
+    Assert.assertEquals(0, backgroundListings.get());
+  }
+
   @Test
   public void deleteServerByIdAndWait() throws Exception {
     //doThrow(new NullPointerException()).when(openstackClient);
@@ -1276,6 +1445,131 @@ public class OpenstackTest {
     image = openstackClient.addImage(vimInstance, definedImage, "mocked_inputstream".getBytes());
   }
 
+  @Test
+  public void testAddImageFromStream() throws VimDriverException {
+    byte[] imageFile = "mocked_inputstream".getBytes();
+    NFVImage image =
+        openstackClient.addImage(
+            vimInstance, definedImage, new ByteArrayInputStream(imageFile), imageFile.length);
+    assertEqualsImages(image, definedImage);
+    definedImage.setName("mocked_error_ext_image_id");
+    exception.expect(VimDriverException.class);
+    image =
+        openstackClient.addImage(
+            vimInstance, definedImage, new ByteArrayInputStream(imageFile), imageFile.length);
+  }
+
+  @Test
+  public void testAddImageDeduplicated() throws VimDriverException {
+    Whitebox.setInternalState(OpenstackClient.class, "imageDeduplication", true);
+    try {
+      // the upload of this name fails, but an image with the same content exists already
+      definedImage.setName("mocked_error_ext_image_id");
+      NFVImage image =
+          openstackClient.addImage(vimInstance, definedImage, "mocked_image_file".getBytes());
+      Assert.assertEquals("mocked_image_id", image.getExtId());
+    } finally {
+      Whitebox.setInternalState(OpenstackClient.class, "imageDeduplication", false);
+    }
+  }
+
+  @Test
+  public void testAddImageNotDeduplicatedByDefault() throws VimDriverException {
+    // an image with the same content exists, but is not reused, so the failing upload is tried
+    definedImage.setName("mocked_error_ext_image_id");
+    exception.expect(VimDriverException.class);
+    openstackClient.addImage(vimInstance, definedImage, "mocked_image_file".getBytes());
+  }
+
+  @Test
+  public void testAddImageRetriedFromSpool() throws VimDriverException {
+    byte[] imageFile = "mocked_image_file".getBytes();
+    // the first upload fails, the retry sends the spooled stream
+    definedImage.setName("mocked_flaky_image_name");
+    NFVImage image =
+        openstackClient.addImage(
+            vimInstance, definedImage, new ByteArrayInputStream(imageFile), imageFile.length);
+    Assert.assertEquals("mocked_image_id", image.getExtId());
+  }
+
+  @Test
+  public void testAddImageRetryDeletesLeftover() throws VimDriverException {
+    byte[] imageFile = "mocked_image_file".getBytes();
+    ImageDetails queuedImage = mock(ImageDetails.class);
+    when(queuedImage.getStatus())
+        .thenReturn(org.jclouds.openstack.glance.v1_0.domain.Image.Status.QUEUED);
+    when(imageApi.get(anyString())).thenReturn(queuedImage);
+    definedImage.setName("mocked_flaky_image_name");
+    NFVImage image =
+        openstackClient.addImage(
+            vimInstance, definedImage, new ByteArrayInputStream(imageFile), imageFile.length);
+    Assert.assertEquals("mocked_image_id", image.getExtId());
+    // the image the failed attempt left queued is deleted before the retry
+    ArgumentCaptor<String> leftoverId = ArgumentCaptor.forClass(String.class);
+    verify(imageApi).get(leftoverId.capture());
+    verify(imageApi).delete(leftoverId.getValue());
+    verify(imageApi, times(2))
+        .create(eq("mocked_flaky_image_name"), any(Payload.class), any(CreateImageOptions.class));
+  }
+
+  @Test
+  public void testAddImageReusesImageStoredDespiteFailure() throws VimDriverException {
+    byte[] imageFile = "mocked_image_file".getBytes();
+    when(imageApi.get(anyString())).thenReturn(imageDetails);
+    definedImage.setName("mocked_flaky_image_name");
+    NFVImage image =
+        openstackClient.addImage(
+            vimInstance, definedImage, new ByteArrayInputStream(imageFile), imageFile.length);
+    Assert.assertEquals("mocked_image_id", image.getExtId());
+    verify(imageApi, times(1))
+        .create(eq("mocked_flaky_image_name"), any(Payload.class), any(CreateImageOptions.class));
+    verify(imageApi, never()).delete(anyString());
+  }
+
+  @Test
+  public void testAddImageFromFile() throws VimDriverException, IOException {
+    File imageFile = File.createTempFile("mocked_image", ".img");
+    imageFile.deleteOnExit();
+    try (FileOutputStream out = new FileOutputStream(imageFile)) {
+      out.write("mocked_image_file".getBytes());
+    }
+    NFVImage image = openstackClient.addImage(vimInstance, definedImage, imageFile);
+    assertEqualsImages(image, definedImage);
+    // not an existing image, and the checksum stored by Glance does not match the file anymore
+    try (FileOutputStream out = new FileOutputStream(imageFile)) {
+      out.write("corrupted_image_file".getBytes());
+    }
+    exception.expect(VimDriverException.class);
+    image = openstackClient.addImage(vimInstance, definedImage, imageFile);
+  }
+
+  @Test
+  public void testDistributeImage() throws Exception {
+    byte[] imageFile = "mocked_inputstream".getBytes();
+    NFVImage failingImage = createImage();
+    failingImage.setName("mocked_error_ext_image_id");
+    List<ListenableFuture<NFVImage>> futures =
+        openstackClient.distributeImage(
+            Arrays.asList(vimInstance, vimInstance),
+            definedImage,
+            new ByteArrayInputStream(imageFile),
+            imageFile.length,
+            null);
+    Assert.assertEquals(2, futures.size());
+    for (ListenableFuture<NFVImage> future : futures) {
+      assertEqualsImages(future.get(5, TimeUnit.SECONDS), definedImage);
+    }
+    futures =
+        openstackClient.distributeImage(
+            Arrays.asList(vimInstance),
+            failingImage,
+            new ByteArrayInputStream(imageFile),
+            imageFile.length,
+            null);
+    exception.expect(ExecutionException.class);
+    futures.get(0).get(5, TimeUnit.SECONDS);
+  }
+
   @Test
   public void testAddImageByURL() throws VimDriverException {
     NFVImage image = openstackClient.addImage(vimInstance, definedImage, "mocked_image_url");
@@ -1332,6 +1626,13 @@ public class OpenstackTest {
     images = openstackClient.listImages(vimInstance);
   }
 
+  @Test
+  public void testFindImage() throws VimDriverException {
+    NFVImage image = openstackClient.findImage(vimInstance, definedImage.getName());
+    assertEqualsImages(definedImage, image);
+    Assert.assertNull(openstackClient.findImage(vimInstance, "not_existing_image_name"));
+  }
+
   @Test
   public void testCopyImage() throws VimDriverException {
     NFVImage image = openstackClient.copyImage(vimInstance, definedImage, new byte[0]);
@@ -1382,6 +1683,7 @@ public class OpenstackTest {
     when(novaApi.getFlavorApi(anyString())).thenReturn(flavorApi);
     when(flavorApi.listInDetail()).thenReturn(mock(PagedIterable.class));
     when(flavorApi.listInDetail().concat()).thenThrow(new AuthorizationException());
+    openstackClient.invalidate(vimInstance);
     exception.expect(VimDriverException.class);
     openstackClient.listFlavors(vimInstance);
   }
@@ -0,0 +1,117 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.vim_drivers.test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.jclouds.openstack.nova.v2_0.domain.Server;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.clients.interfaces.client.openstack.ServerStatusWatcher;
+import org.openbaton.clients.interfaces.client.openstack.WaitPolicy;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ServerStatusWatcherTest {
+
+  private ScheduledExecutorService scheduler;
+  private ServerStatusWatcher watcher;
+  private final List<Server> servers = new CopyOnWriteArrayList<>();
+  private VimInstance vimInstance;
+
+  @Before
+  public void init() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    watcher =
+        new ServerStatusWatcher(
+            new ServerStatusWatcher.ServerSource() {
+              @Override
+              public Iterable<Server> listServers(VimInstance vimInstance) {
+                return new ArrayList<>(servers);
+              }
+            },
+            scheduler,
+            MoreExecutors.sameThreadExecutor(),
+            new WaitPolicy(50, 50, 1, 0));
+    vimInstance = VimPollerTest.mockVimInstance();
+  }
+
+  @After
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  private Server mockServer(String id, Server.Status status) {
+    Server server = mock(Server.class);
+    when(server.getId()).thenReturn(id);
+    when(server.getStatus()).thenReturn(status);
+    return server;
+  }
+
+  @Test
+  public void testDeletedServerIsNotListed() throws Exception {
+    ListenableFuture<Server> deleted =
+        watcher.watch(vimInstance, "deleted_server", EnumSet.of(Server.Status.DELETED));
+    Assert.assertNull(deleted.get(5, TimeUnit.SECONDS));
+    Thread.sleep(200);
+    Assert.assertEquals(0, watcher.getWatchedCount(vimInstance));
+  }
+
+  @Test
+  public void testMissingServerFails() throws Exception {
+    ListenableFuture<Server> missing =
+        watcher.watch(vimInstance, "missing_server", EnumSet.of(Server.Status.ACTIVE));
+    try {
+      missing.get(5, TimeUnit.SECONDS);
+      Assert.fail("Waiting for a missing VM must fail");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause().getMessage().contains("missing_server"));
+    }
+  }
+
+  @Test
+  public void testWaitTimesOut() throws Exception {
+    servers.add(mockServer("stuck_server", Server.Status.BUILD));
+    ListenableFuture<Server> stuck =
+        watcher.watch(vimInstance, "stuck_server", EnumSet.of(Server.Status.ACTIVE), 300, -1);
+    try {
+      stuck.get(5, TimeUnit.SECONDS);
+      Assert.fail("Waiting for a stuck VM must time out");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause().getMessage().startsWith("Timed out"));
+      Assert.assertTrue(e.getCause().getMessage().contains("VM with ExtId: stuck_server"));
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.vim_drivers.test;
+
+import com.google.common.io.ByteStreams;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbaton.clients.interfaces.client.openstack.StreamFanOut;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class StreamFanOutTest {
+
+  private ExecutorService readers;
+  private byte[] content;
+
+  @Before
+  public void init() {
+    readers = Executors.newCachedThreadPool();
+    content = new byte[10000];
+    new Random(42).nextBytes(content);
+  }
+
+  @After
+  public void shutdown() {
+    readers.shutdownNow();
+  }
+
+  private Future<byte[]> read(final StreamFanOut fanOut, final int target) {
+    return readers.submit(
+        new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws IOException {
+            try {
+              return ByteStreams.toByteArray(fanOut.getStream(target));
+            } finally {
+              fanOut.finish(target);
+            }
+          }
+        });
+  }
+
+  @Test
+  public void testAllTargetsGetTheContent() throws Exception {
+    StreamFanOut fanOut = new StreamFanOut(3, 1000, 2);
+    List<Future<byte[]>> results = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      results.add(read(fanOut, i));
+    }
+    fanOut.pump(new ByteArrayInputStream(content));
+    for (int i = 0; i < 3; i++) {
+      Assert.assertTrue(Arrays.equals(content, results.get(i).get(5, TimeUnit.SECONDS)));
+      Assert.assertEquals(content.length, fanOut.getBytesRead(i));
+    }
+  }
+
+  @Test
+  public void testFinishedTargetDoesNotBlock() throws Exception {
+    StreamFanOut fanOut = new StreamFanOut(2, 1000, 2);
+    // the first target gives up before reading anything
+    fanOut.finish(0);
+    Future<byte[]> result = read(fanOut, 1);
+    fanOut.pump(new ByteArrayInputStream(content));
+    Assert.assertTrue(Arrays.equals(content, result.get(5, TimeUnit.SECONDS)));
+    Assert.assertEquals(0, fanOut.getBytesRead(0));
+  }
+
+  @Test
+  public void testSourceFailureReachesTargets() throws Exception {
+    StreamFanOut fanOut = new StreamFanOut(2, 1000, 2);
+    List<Future<byte[]>> results = Arrays.asList(read(fanOut, 0), read(fanOut, 1));
+    InputStream failing =
+        new InputStream() {
+          private int read;
+
+          @Override
+          public int read() throws IOException {
+            if (++read > 2500) {
+              throw new IOException("mocked_read_error");
+            }
+            return 0;
+          }
+        };
+    try {
+      fanOut.pump(failing);
+      Assert.fail("The failure of the source must be thrown");
+    } catch (IOException e) {
+      Assert.assertEquals("mocked_read_error", e.getMessage());
+    }
+    for (Future<byte[]> result : results) {
+      try {
+        result.get(5, TimeUnit.SECONDS);
+        Assert.fail("A target must not see the end of a failed source");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause().getMessage().contains("mocked_read_error"));
+      }
+    }
+  }
+}
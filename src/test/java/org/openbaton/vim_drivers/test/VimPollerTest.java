@@ -0,0 +1,205 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+
+package org.openbaton.vim_drivers.test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openbaton.catalogue.nfvo.VimInstance;
+import org.openbaton.clients.interfaces.client.openstack.VimPoller;
+import org.openbaton.clients.interfaces.client.openstack.WaitPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class VimPollerTest {
+
+  private ScheduledExecutorService scheduler;
+  private ResourcePoller poller;
+  /** Listed resources, each one named after its ID and done if it ends with "_done". */
+  private final List<String> resources = new CopyOnWriteArrayList<>();
+  private final AtomicInteger listings = new AtomicInteger();
+  /** Number of the following listings which fail. */
+  private final AtomicInteger failures = new AtomicInteger();
+  private VimInstance vimInstance;
+
+  @Before
+  public void init() {
+    scheduler = Executors.newSingleThreadScheduledExecutor();
+    poller = new ResourcePoller(scheduler);
+    vimInstance = mockVimInstance();
+  }
+
+  @After
+  public void shutdown() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * Returns a VimInstance for the poll loop tests of the VimPoller and its subclasses.
+   */
+  static VimInstance mockVimInstance() {
+    VimInstance vimInstance = new VimInstance();
+    vimInstance.setName("mocked_vim_instance");
+    vimInstance.setAuthUrl("http://mocked_auth_url:5000/v2.0");
+    vimInstance.setTenant("mocked_tenant");
+    vimInstance.setUsername("mocked_user");
+    vimInstance.setPassword("mocked_password");
+    return vimInstance;
+  }
+
+  /**
+   * Polls resources which are listed as their IDs, each with a suffix "_done" once it is done.
+   */
+  private class ResourcePoller extends VimPoller<String, VimPoller.Wait<String>> {
+
+    private ResourcePoller(ScheduledExecutorService scheduler) {
+      super(
+          "resources", scheduler, MoreExecutors.sameThreadExecutor(), new WaitPolicy(50, 50, 1, 0));
+    }
+
+    private ListenableFuture<String> await(String id, long timeoutMillis) {
+      return poll(vimInstance, new Wait<String>(id, timeoutMillis, -1) {});
+    }
+
+    @Override
+    protected Iterable<String> list(VimInstance vimInstance, Collection<Wait<String>> waits)
+        throws Exception {
+      listings.incrementAndGet();
+      if (failures.getAndDecrement() > 0) {
+        throw new Exception("listing failed");
+      }
+      return new ArrayList<>(resources);
+    }
+
+    @Override
+    protected String getId(String resource) {
+      return resource.replace("_done", "");
+    }
+
+    @Override
+    protected boolean update(VimInstance vimInstance, Wait<String> wait, String resource) {
+      if (resource != null && resource.endsWith("_done")) {
+        wait.getFuture().set(resource);
+        return true;
+      }
+      return false;
+    }
+
+    @Override
+    protected String describe(Wait<String> wait) {
+      return "resource " + wait.getId();
+    }
+  }
+
+  @Test
+  public void testOneListingPerTickForAllWaits() throws Exception {
+    resources.add("resource_1");
+    resources.add("resource_2");
+    ListenableFuture<String> first = poller.await("resource_1", 0);
+    ListenableFuture<String> second = poller.await("resource_2", 0);
+    Assert.assertEquals(2, poller.getPendingCount(vimInstance));
+
+    Thread.sleep(200);
+    Assert.assertFalse(first.isDone());
+    int listingsWhilePending = listings.get();
+    Assert.assertTrue(listingsWhilePending > 0);
+
+    resources.clear();
+    resources.add("resource_1_done");
+    resources.add("resource_2_done");
+    Assert.assertEquals("resource_1_done", first.get(5, TimeUnit.SECONDS));
+    Assert.assertEquals("resource_2_done", second.get(5, TimeUnit.SECONDS));
+    // both resources were checked by the same listings
+    Assert.assertTrue(listings.get() <= listingsWhilePending + 2);
+  }
+
+  @Test
+  public void testLoopStopsWithoutWaitsAndRestarts() throws Exception {
+    resources.add("resource_1_done");
+    Assert.assertEquals("resource_1_done", poller.await("resource_1", 0).get(5, TimeUnit.SECONDS));
+    Thread.sleep(200);
+    Assert.assertEquals(0, poller.getPendingCount(vimInstance));
+    int listingsWhenStopped = listings.get();
+    Thread.sleep(200);
+    Assert.assertEquals(listingsWhenStopped, listings.get());
+
+    Assert.assertEquals("resource_1_done", poller.await("resource_1", 0).get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCancelledWaitIsDropped() throws Exception {
+    resources.add("resource_1");
+    poller.await("resource_1", 0).cancel(false);
+    Thread.sleep(200);
+    Assert.assertEquals(0, poller.getPendingCount(vimInstance));
+  }
+
+  @Test
+  public void testWaitTimesOut() throws Exception {
+    resources.add("stuck_resource");
+    ListenableFuture<String> stuck = poller.await("stuck_resource", 300);
+    try {
+      stuck.get(5, TimeUnit.SECONDS);
+      Assert.fail("Waiting for a stuck resource must time out");
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause().getMessage().startsWith("Timed out"));
+      Assert.assertTrue(e.getCause().getMessage().contains("resource stuck_resource"));
+    }
+  }
+
+  @Test
+  public void testRepeatedlyFailedListingsFailAllWaits() throws Exception {
+    failures.set(Integer.MAX_VALUE);
+    ListenableFuture<String> first = poller.await("resource_1", 0);
+    ListenableFuture<String> second = poller.await("resource_2", 0);
+    for (ListenableFuture<String> future : Arrays.asList(first, second)) {
+      try {
+        future.get(5, TimeUnit.SECONDS);
+        Assert.fail("Waits must fail once the listing failed repeatedly");
+      } catch (ExecutionException e) {
+        Assert.assertEquals("listing failed", e.getCause().getMessage());
+      }
+    }
+    Assert.assertEquals(3, listings.get());
+  }
+
+  @Test
+  public void testFailedListingsAreRetried() throws Exception {
+    failures.set(2);
+    resources.add("resource_1_done");
+    Assert.assertEquals("resource_1_done", poller.await("resource_1", 0).get(5, TimeUnit.SECONDS));
+    Assert.assertEquals(3, listings.get());
+  }
+}
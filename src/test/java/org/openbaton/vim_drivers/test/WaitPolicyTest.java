@@ -0,0 +1,68 @@
+/*
+ *
+ *  *
+ *  *  * Copyright (c) 2016 Open Baton (http://www.openbaton.org)
+ *  *  *
+ *  *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  *  * you may not use this file except in compliance with the License.
+ *  *  * You may obtain a copy of the License at
+ *  *  *
+ *  *  *     http://www.apache.org/licenses/LICENSE-2.0
+ *  *  *
+ *  *  * Unless required by applicable law or agreed to in writing, software
+ *  *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  *  * See the License for the specific language governing permissions and
+ *  *  * limitations under the License.
+ *  *
+ *
+ */
+
+package org.openbaton.vim_drivers.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openbaton.clients.interfaces.client.openstack.BootTimeEstimator;
+import org.openbaton.clients.interfaces.client.openstack.WaitPolicy;
+
+public class WaitPolicyTest {
+
+  @Test
+  public void testExponentialBackoffIsBounded() {
+    WaitPolicy policy = new WaitPolicy(1000, 10000, 2, 0);
+    Assert.assertEquals(1000, policy.nextDelay(0, 0, -1));
+    Assert.assertEquals(2000, policy.nextDelay(1, 1000, -1));
+    Assert.assertEquals(8000, policy.nextDelay(3, 7000, -1));
+    Assert.assertEquals(10000, policy.nextDelay(10, 60000, -1));
+  }
+
+  @Test
+  public void testExpectedDurationIsApproached() {
+    WaitPolicy policy = new WaitPolicy(1000, 30000, 2, 0);
+    Assert.assertEquals(30000, policy.nextDelay(0, 0, 120000));
+    Assert.assertEquals(10000, policy.nextDelay(0, 100000, 120000));
+    Assert.assertEquals(1000, policy.nextDelay(0, 119000, 120000));
+    // overdue, back off again
+    Assert.assertEquals(4000, policy.nextDelay(2, 130000, 120000));
+  }
+
+  @Test
+  public void testJitterStaysWithinBounds() {
+    WaitPolicy policy = new WaitPolicy(1000, 1000, 1, 0.2);
+    for (int i = 0; i < 100; i++) {
+      long delay = policy.nextDelay(0, 0, -1);
+      Assert.assertTrue(delay >= 800 && delay <= 1200);
+    }
+  }
+
+  @Test
+  public void testBootTimeAverage() {
+    BootTimeEstimator estimator = new BootTimeEstimator();
+    Assert.assertEquals(-1, estimator.getExpectedMillis("auth_url", "image", "flavor"));
+    estimator.record("auth_url", "image", "flavor", 10000);
+    Assert.assertEquals(10000, estimator.getExpectedMillis("auth_url", "image", "flavor"));
+    estimator.record("auth_url", "image", "flavor", 20000);
+    Assert.assertEquals(13000, estimator.getExpectedMillis("auth_url", "image", "flavor"));
+    Assert.assertEquals(-1, estimator.getExpectedMillis("auth_url", "image", "other_flavor"));
+  }
+}